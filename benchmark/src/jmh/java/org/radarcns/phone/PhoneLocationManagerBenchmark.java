@@ -0,0 +1,79 @@
+/*
+ * Copyright 2017 The Hyve
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ * http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+package org.radarcns.phone;
+
+import android.location.Location;
+import android.location.LocationManager;
+
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.Level;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.TearDown;
+
+import java.io.IOException;
+import java.util.Random;
+
+/** Benchmarks processing of location updates, along a random walk near a reference point. */
+@State(Scope.Thread)
+public class PhoneLocationManagerBenchmark {
+    private static final int NUM_LOCATIONS = 1024;
+
+    private PhoneLocationManager manager;
+    private Location[] locations;
+    private int index;
+
+    @Setup(Level.Trial)
+    public void setUp() {
+        PhoneLocationService service = new PhoneLocationService();
+        manager = (PhoneLocationManager) service.createDeviceManager();
+
+        Random random = new Random(1L);
+        double latitude = 52.0907;
+        double longitude = 5.1214;
+        long time = System.currentTimeMillis();
+        locations = new Location[NUM_LOCATIONS];
+        for (int i = 0; i < NUM_LOCATIONS; i++) {
+            latitude += 0.0001 * random.nextGaussian();
+            longitude += 0.0001 * random.nextGaussian();
+            time += 1000L;
+            Location location = new Location(
+                    i % 2 == 0 ? LocationManager.GPS_PROVIDER : LocationManager.NETWORK_PROVIDER);
+            location.setTime(time);
+            location.setLatitude(latitude);
+            location.setLongitude(longitude);
+            location.setAltitude(10d + random.nextGaussian());
+            location.setAccuracy(5f + 2f * random.nextFloat());
+            location.setSpeed(1.4f * random.nextFloat());
+            location.setBearing(360f * random.nextFloat());
+            locations[i] = location;
+        }
+        index = 0;
+    }
+
+    @TearDown(Level.Trial)
+    public void tearDown() throws IOException {
+        manager.close();
+    }
+
+    @Benchmark
+    public void onLocationChanged() {
+        manager.onLocationChanged(locations[index]);
+        index = (index + 1) & (NUM_LOCATIONS - 1);
+    }
+}
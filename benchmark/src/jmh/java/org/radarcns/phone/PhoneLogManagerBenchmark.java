@@ -0,0 +1,63 @@
+/*
+ * Copyright 2017 The Hyve
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ * http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+package org.radarcns.phone;
+
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.Level;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.TearDown;
+
+import java.io.IOException;
+import java.util.Random;
+
+/** Benchmarks hashing of phone numbers, in local and international format. */
+@State(Scope.Thread)
+public class PhoneLogManagerBenchmark {
+    private static final int NUM_TARGETS = 1024;
+
+    private PhoneLogManager manager;
+    private String[] targets;
+    private int index;
+
+    @Setup(Level.Trial)
+    public void setUp() {
+        PhoneLogService service = new PhoneLogService();
+        manager = (PhoneLogManager) service.createDeviceManager();
+
+        Random random = new Random(1L);
+        targets = new String[NUM_TARGETS];
+        for (int i = 0; i < NUM_TARGETS; i++) {
+            String number = String.format("%09d", random.nextInt(1_000_000_000));
+            targets[i] = i % 2 == 0 ? "+31" + number : "0" + number;
+        }
+        index = 0;
+    }
+
+    @TearDown(Level.Trial)
+    public void tearDown() throws IOException {
+        manager.close();
+    }
+
+    @Benchmark
+    public byte[] createTargetHashKey() {
+        byte[] result = manager.createTargetHashKey(targets[index]);
+        index = (index + 1) & (NUM_TARGETS - 1);
+        return result;
+    }
+}
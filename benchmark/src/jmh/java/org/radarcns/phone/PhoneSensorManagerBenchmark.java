@@ -0,0 +1,106 @@
+/*
+ * Copyright 2017 The Hyve
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ * http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+package org.radarcns.phone;
+
+import android.hardware.Sensor;
+import android.hardware.SensorEvent;
+
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.Level;
+import org.openjdk.jmh.annotations.Param;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.TearDown;
+
+import java.io.IOException;
+import java.util.Random;
+
+/**
+ * Benchmarks processing of accelerometer and light events. Events are precomputed, and only
+ * their timestamps are updated in the benchmark loop, to simulate a 50 Hz sensor.
+ */
+@State(Scope.Thread)
+public class PhoneSensorManagerBenchmark {
+    private static final int NUM_EVENTS = 1024;
+    private static final long EVENT_INTERVAL = 20_000_000L;
+
+    /** Acceleration buffer size, 0 to send each sample directly. */
+    @Param({"0", "250"})
+    public int accelerationBufferSize;
+
+    /** Acceleration window length in seconds, 0 to send raw samples. */
+    @Param({"0"})
+    public double accelerationWindow;
+
+    private PhoneSensorManager manager;
+    private SensorEvent[] accelerationEvents;
+    private SensorEvent[] lightEvents;
+    private int index;
+    private long timestamp;
+
+    @Setup(Level.Trial)
+    public void setUp() {
+        PhoneSensorService service = new PhoneSensorService();
+        manager = (PhoneSensorManager) service.createDeviceManager();
+        manager.setAccelerationBuffer(accelerationBufferSize,
+                PhoneSensorManager.ACCELERATION_BUFFER_MAX_AGE_DEFAULT);
+        manager.setAccelerationWindow(accelerationWindow);
+
+        Random random = new Random(1L);
+        Sensor accelerometer = new Sensor(Sensor.TYPE_ACCELEROMETER);
+        Sensor light = new Sensor(Sensor.TYPE_LIGHT);
+        accelerationEvents = new SensorEvent[NUM_EVENTS];
+        lightEvents = new SensorEvent[NUM_EVENTS];
+        for (int i = 0; i < NUM_EVENTS; i++) {
+            accelerationEvents[i] = new SensorEvent(3);
+            accelerationEvents[i].sensor = accelerometer;
+            accelerationEvents[i].values[0] = (float) random.nextGaussian();
+            accelerationEvents[i].values[1] = (float) random.nextGaussian();
+            accelerationEvents[i].values[2] = 9.81f + (float) random.nextGaussian();
+
+            lightEvents[i] = new SensorEvent(1);
+            lightEvents[i].sensor = light;
+            lightEvents[i].values[0] = 100f + 10f * (float) random.nextGaussian();
+        }
+        index = 0;
+        timestamp = System.nanoTime();
+    }
+
+    @TearDown(Level.Trial)
+    public void tearDown() throws IOException {
+        manager.close();
+    }
+
+    private SensorEvent next(SensorEvent[] events) {
+        SensorEvent event = events[index];
+        index = (index + 1) & (NUM_EVENTS - 1);
+        timestamp += EVENT_INTERVAL;
+        event.timestamp = timestamp;
+        return event;
+    }
+
+    @Benchmark
+    public void processAcceleration() {
+        manager.processAcceleration(next(accelerationEvents));
+    }
+
+    @Benchmark
+    public void processLight() {
+        manager.processLight(next(lightEvents));
+    }
+}
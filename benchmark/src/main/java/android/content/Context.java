@@ -0,0 +1,53 @@
+/*
+ * Copyright 2017 The Hyve
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ * http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+package android.content;
+
+/** Minimal stand-in for the Android Context. System services are not available. */
+public abstract class Context {
+    public static final String SENSOR_SERVICE = "sensor";
+    public static final String LOCATION_SERVICE = "location";
+    public static final String POWER_SERVICE = "power";
+    public static final String KEYGUARD_SERVICE = "keyguard";
+
+    public Object getSystemService(String name) {
+        return null;
+    }
+
+    public Intent registerReceiver(BroadcastReceiver receiver, IntentFilter filter) {
+        return null;
+    }
+
+    public Intent registerReceiver(BroadcastReceiver receiver, IntentFilter filter,
+            String broadcastPermission, android.os.Handler scheduler) {
+        return null;
+    }
+
+    public void unregisterReceiver(BroadcastReceiver receiver) {
+    }
+
+    public ContentResolver getContentResolver() {
+        return null;
+    }
+
+    public String getPackageName() {
+        return "org.radarcns.phone";
+    }
+
+    public String getString(int resId) {
+        return "";
+    }
+}
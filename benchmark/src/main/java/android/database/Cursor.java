@@ -0,0 +1,31 @@
+/*
+ * Copyright 2017 The Hyve
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ * http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+package android.database;
+
+import java.io.Closeable;
+
+/** Minimal stand-in for the Android Cursor. */
+public interface Cursor extends Closeable {
+    int getCount();
+    boolean moveToNext();
+    int getColumnIndex(String columnName);
+    long getLong(int columnIndex);
+    int getInt(int columnIndex);
+    float getFloat(int columnIndex);
+    String getString(int columnIndex);
+    void close();
+}
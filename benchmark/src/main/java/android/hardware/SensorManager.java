@@ -0,0 +1,52 @@
+/*
+ * Copyright 2017 The Hyve
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ * http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+package android.hardware;
+
+import android.os.Handler;
+
+/** Minimal stand-in for the Android SensorManager. No sensors are available. */
+public abstract class SensorManager {
+    public static final int SENSOR_DELAY_NORMAL = 3;
+
+    public Sensor getDefaultSensor(int type) {
+        return null;
+    }
+
+    public boolean registerListener(SensorEventListener listener, Sensor sensor,
+            int samplingPeriodUs, Handler handler) {
+        return false;
+    }
+
+    public boolean registerListener(SensorEventListener listener, Sensor sensor,
+            int samplingPeriodUs, int maxReportLatencyUs, Handler handler) {
+        return false;
+    }
+
+    public void unregisterListener(SensorEventListener listener) {
+    }
+
+    public void unregisterListener(SensorEventListener listener, Sensor sensor) {
+    }
+
+    public boolean requestTriggerSensor(TriggerEventListener listener, Sensor sensor) {
+        return false;
+    }
+
+    public boolean cancelTriggerSensor(TriggerEventListener listener, Sensor sensor) {
+        return false;
+    }
+}
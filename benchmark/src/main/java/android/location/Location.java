@@ -0,0 +1,120 @@
+/*
+ * Copyright 2017 The Hyve
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ * http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+package android.location;
+
+/** Minimal stand-in for the Android Location. */
+public class Location {
+    private final String provider;
+    private long time;
+    private double latitude;
+    private double longitude;
+    private double altitude = Double.NaN;
+    private float accuracy = Float.NaN;
+    private float speed = Float.NaN;
+    private float bearing = Float.NaN;
+
+    public Location(String provider) {
+        this.provider = provider;
+    }
+
+    public String getProvider() {
+        return provider;
+    }
+
+    public long getTime() {
+        return time;
+    }
+
+    public void setTime(long time) {
+        this.time = time;
+    }
+
+    public double getLatitude() {
+        return latitude;
+    }
+
+    public void setLatitude(double latitude) {
+        this.latitude = latitude;
+    }
+
+    public double getLongitude() {
+        return longitude;
+    }
+
+    public void setLongitude(double longitude) {
+        this.longitude = longitude;
+    }
+
+    public boolean hasAltitude() {
+        return !Double.isNaN(altitude);
+    }
+
+    public double getAltitude() {
+        return altitude;
+    }
+
+    public void setAltitude(double altitude) {
+        this.altitude = altitude;
+    }
+
+    public boolean hasAccuracy() {
+        return !Float.isNaN(accuracy);
+    }
+
+    public float getAccuracy() {
+        return accuracy;
+    }
+
+    public void setAccuracy(float accuracy) {
+        this.accuracy = accuracy;
+    }
+
+    public boolean hasSpeed() {
+        return !Float.isNaN(speed);
+    }
+
+    public float getSpeed() {
+        return speed;
+    }
+
+    public void setSpeed(float speed) {
+        this.speed = speed;
+    }
+
+    public boolean hasBearing() {
+        return !Float.isNaN(bearing);
+    }
+
+    public float getBearing() {
+        return bearing;
+    }
+
+    public void setBearing(float bearing) {
+        this.bearing = bearing;
+    }
+
+    /** Great-circle distance in meters, on a spherical earth. */
+    public static void distanceBetween(double startLatitude, double startLongitude,
+            double endLatitude, double endLongitude, float[] results) {
+        double dLat = Math.toRadians(endLatitude - startLatitude);
+        double dLon = Math.toRadians(endLongitude - startLongitude);
+        double a = Math.sin(dLat / 2) * Math.sin(dLat / 2)
+                + Math.cos(Math.toRadians(startLatitude)) * Math.cos(Math.toRadians(endLatitude))
+                * Math.sin(dLon / 2) * Math.sin(dLon / 2);
+        results[0] = (float) (6371000.0 * 2 * Math.atan2(Math.sqrt(a), Math.sqrt(1 - a)));
+    }
+}
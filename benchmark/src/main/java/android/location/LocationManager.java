@@ -0,0 +1,47 @@
+/*
+ * Copyright 2017 The Hyve
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ * http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+package android.location;
+
+/** Minimal stand-in for the Android LocationManager. No providers are enabled. */
+public abstract class LocationManager {
+    public static final String GPS_PROVIDER = "gps";
+    public static final String NETWORK_PROVIDER = "network";
+    public static final String PASSIVE_PROVIDER = "passive";
+    public static final String KEY_PROXIMITY_ENTERING = "entering";
+
+    public boolean isProviderEnabled(String provider) {
+        return false;
+    }
+
+    public Location getLastKnownLocation(String provider) {
+        return null;
+    }
+
+    public void requestLocationUpdates(String provider, long minTime, float minDistance,
+            LocationListener listener) {
+    }
+
+    public void removeUpdates(LocationListener listener) {
+    }
+
+    public void addProximityAlert(double latitude, double longitude, float radius,
+            long expiration, android.app.PendingIntent intent) {
+    }
+
+    public void removeProximityAlert(android.app.PendingIntent intent) {
+    }
+}
@@ -0,0 +1,61 @@
+/*
+ * Copyright 2017 The Hyve
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ * http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+package android.os;
+
+import java.util.Map;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.Future;
+import java.util.concurrent.TimeUnit;
+
+/** Minimal stand-in for the Android Handler, running tasks on the executor of its Looper. */
+public class Handler {
+    private final Looper looper;
+    private final Map<Runnable, Future<?>> pending = new ConcurrentHashMap<>();
+
+    public Handler(Looper looper) {
+        this.looper = looper;
+    }
+
+    public Looper getLooper() {
+        return looper;
+    }
+
+    public boolean post(Runnable r) {
+        return postDelayed(r, 0L);
+    }
+
+    public boolean postDelayed(final Runnable r, long delayMillis) {
+        if (looper.getExecutor().isShutdown()) {
+            return false;
+        }
+        pending.put(r, looper.getExecutor().schedule(new Runnable() {
+            @Override
+            public void run() {
+                pending.remove(r);
+                r.run();
+            }
+        }, delayMillis, TimeUnit.MILLISECONDS));
+        return true;
+    }
+
+    public void removeCallbacks(Runnable r) {
+        Future<?> future = pending.remove(r);
+        if (future != null) {
+            future.cancel(false);
+        }
+    }
+}
@@ -0,0 +1,64 @@
+/*
+ * Copyright 2017 The Hyve
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ * http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+package android.os;
+
+import java.util.concurrent.Executors;
+import java.util.concurrent.ScheduledExecutorService;
+import java.util.concurrent.ThreadFactory;
+import java.util.concurrent.TimeUnit;
+
+/** Minimal stand-in for the Android HandlerThread, backed by a single-threaded executor. */
+public class HandlerThread {
+    private final String name;
+    private Looper looper;
+
+    public HandlerThread(String name, int priority) {
+        this.name = name;
+    }
+
+    public synchronized void start() {
+        ScheduledExecutorService executor = Executors.newSingleThreadScheduledExecutor(
+                new ThreadFactory() {
+                    @Override
+                    public Thread newThread(Runnable r) {
+                        Thread thread = new Thread(r, name);
+                        thread.setDaemon(true);
+                        return thread;
+                    }
+                });
+        looper = new Looper(executor);
+    }
+
+    public synchronized Looper getLooper() {
+        return looper;
+    }
+
+    public synchronized boolean quitSafely() {
+        if (looper == null) {
+            return false;
+        }
+        looper.getExecutor().shutdown();
+        return true;
+    }
+
+    public final void join(long millis) throws InterruptedException {
+        Looper localLooper = getLooper();
+        if (localLooper != null) {
+            localLooper.getExecutor().awaitTermination(millis, TimeUnit.MILLISECONDS);
+        }
+    }
+}
@@ -0,0 +1,32 @@
+/*
+ * Copyright 2017 The Hyve
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ * http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+package android.os;
+
+import java.util.concurrent.ScheduledExecutorService;
+
+/** Minimal stand-in for the Android Looper, backed by a single-threaded executor. */
+public class Looper {
+    private final ScheduledExecutorService executor;
+
+    Looper(ScheduledExecutorService executor) {
+        this.executor = executor;
+    }
+
+    ScheduledExecutorService getExecutor() {
+        return executor;
+    }
+}
@@ -0,0 +1,50 @@
+/*
+ * Copyright 2017 The Hyve
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ * http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+package android.os;
+
+import java.util.ArrayList;
+import java.util.List;
+
+/** Minimal stand-in for the Android Parcel, storing values in memory. */
+public class Parcel {
+    private final List<Object> values = new ArrayList<>();
+    private int position = 0;
+
+    public void writeInt(int value) {
+        values.add(value);
+    }
+
+    public int readInt() {
+        return (Integer) values.get(position++);
+    }
+
+    public void writeFloat(float value) {
+        values.add(value);
+    }
+
+    public float readFloat() {
+        return (Float) values.get(position++);
+    }
+
+    public void writeDouble(double value) {
+        values.add(value);
+    }
+
+    public double readDouble() {
+        return (Double) values.get(position++);
+    }
+}
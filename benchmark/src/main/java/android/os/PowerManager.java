@@ -0,0 +1,38 @@
+/*
+ * Copyright 2017 The Hyve
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ * http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+package android.os;
+
+/**
+ * Minimal stand-in for the Android PowerManager. The screen is always on and power-save mode is
+ * never active.
+ */
+public class PowerManager {
+    public static final String ACTION_POWER_SAVE_MODE_CHANGED =
+            "android.os.action.POWER_SAVE_MODE_CHANGED";
+
+    public boolean isPowerSaveMode() {
+        return false;
+    }
+
+    public boolean isInteractive() {
+        return true;
+    }
+
+    public boolean isScreenOn() {
+        return true;
+    }
+}
@@ -0,0 +1,35 @@
+/*
+ * Copyright 2017 The Hyve
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ * http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+package android.provider;
+
+import android.net.Uri;
+
+/** Minimal stand-in for the Android CallLog contract. */
+public class CallLog {
+    public static class Calls {
+        public static final Uri CONTENT_URI = Uri.parse("content://call_log/calls");
+        public static final String DATE = "date";
+        public static final String NUMBER = "number";
+        public static final String DURATION = "duration";
+        public static final String TYPE = "type";
+
+        public static final int INCOMING_TYPE = 1;
+        public static final int OUTGOING_TYPE = 2;
+        public static final int MISSED_TYPE = 3;
+        public static final int VOICEMAIL_TYPE = 4;
+    }
+}
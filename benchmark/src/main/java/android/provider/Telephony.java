@@ -0,0 +1,38 @@
+/*
+ * Copyright 2017 The Hyve
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ * http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+package android.provider;
+
+import android.net.Uri;
+
+/** Minimal stand-in for the Android Telephony contract. */
+public class Telephony {
+    public static class Sms {
+        public static final Uri CONTENT_URI = Uri.parse("content://sms");
+        public static final String DATE = "date";
+        public static final String ADDRESS = "address";
+        public static final String TYPE = "type";
+        public static final String BODY = "body";
+
+        public static final int MESSAGE_TYPE_ALL = 0;
+        public static final int MESSAGE_TYPE_INBOX = 1;
+        public static final int MESSAGE_TYPE_SENT = 2;
+        public static final int MESSAGE_TYPE_DRAFT = 3;
+        public static final int MESSAGE_TYPE_OUTBOX = 4;
+        public static final int MESSAGE_TYPE_FAILED = 5;
+        public static final int MESSAGE_TYPE_QUEUED = 6;
+    }
+}
@@ -0,0 +1,43 @@
+/*
+ * Copyright 2017 The Hyve
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ * http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+package android.util;
+
+/** Minimal stand-in for the Android SparseIntArray. */
+public class SparseIntArray {
+    private final SparseArray<Integer> values = new SparseArray<>();
+
+    public int get(int key, int valueIfKeyNotFound) {
+        Integer value = values.get(key);
+        return value != null ? value : valueIfKeyNotFound;
+    }
+
+    public void put(int key, int value) {
+        values.put(key, value);
+    }
+
+    public int size() {
+        return values.size();
+    }
+
+    public int keyAt(int index) {
+        return values.keyAt(index);
+    }
+
+    public int valueAt(int index) {
+        return values.valueAt(index);
+    }
+}
@@ -0,0 +1,46 @@
+/*
+ * Copyright 2017 The Hyve
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ * http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+package org.radarcns.android;
+
+import java.util.HashMap;
+import java.util.Map;
+
+/** In-memory stand-in for the RADAR configuration. */
+public class RadarConfiguration {
+    public static final String SOURCE_ID_KEY = "source_id";
+
+    private final Map<String, String> values = new HashMap<>();
+
+    public void put(String key, Object value) {
+        values.put(key, String.valueOf(value));
+    }
+
+    public int getInt(String key, int defaultValue) {
+        String value = values.get(key);
+        return value != null ? Integer.parseInt(value) : defaultValue;
+    }
+
+    public long getLong(String key, long defaultValue) {
+        String value = values.get(key);
+        return value != null ? Long.parseLong(value) : defaultValue;
+    }
+
+    public float getFloat(String key, float defaultValue) {
+        String value = values.get(key);
+        return value != null ? Float.parseFloat(value) : defaultValue;
+    }
+}
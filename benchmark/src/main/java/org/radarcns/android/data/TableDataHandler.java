@@ -0,0 +1,93 @@
+/*
+ * Copyright 2017 The Hyve
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ * http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+package org.radarcns.android.data;
+
+import org.radarcns.key.MeasurementKey;
+import org.radarcns.topic.AvroTopic;
+
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.atomic.AtomicLong;
+
+/**
+ * In-memory stand-in for the RADAR TableDataHandler. Records are not stored, only counted per
+ * topic, so measurements can be added indefinitely.
+ */
+public class TableDataHandler {
+    private final Map<String, CountingDataCache<?>> caches = new HashMap<>();
+
+    @SuppressWarnings("unchecked")
+    public synchronized <V> DataCache<MeasurementKey, V> getCache(AvroTopic<MeasurementKey, V> topic) {
+        CountingDataCache<?> cache = caches.get(topic.getName());
+        if (cache == null) {
+            cache = new CountingDataCache<>(topic);
+            caches.put(topic.getName(), cache);
+        }
+        return (DataCache<MeasurementKey, V>) cache;
+    }
+
+    public <V> void addMeasurement(DataCache<MeasurementKey, V> cache, MeasurementKey key, V value) {
+        ((CountingDataCache<V>) cache).add(value);
+    }
+
+    /** Caches that have been requested, sorted by topic name. */
+    public synchronized List<CountingDataCache<?>> getCaches() {
+        List<CountingDataCache<?>> result = new ArrayList<>(caches.values());
+        Collections.sort(result);
+        return result;
+    }
+
+    /** Data cache that counts the records that are added to it. */
+    public static class CountingDataCache<V> implements DataCache<MeasurementKey, V>,
+            Comparable<CountingDataCache<?>> {
+        private final AvroTopic<MeasurementKey, V> topic;
+        private final AtomicLong count = new AtomicLong();
+        private volatile V last;
+
+        private CountingDataCache(AvroTopic<MeasurementKey, V> topic) {
+            this.topic = topic;
+        }
+
+        @Override
+        public AvroTopic<MeasurementKey, V> getTopic() {
+            return topic;
+        }
+
+        private void add(V value) {
+            count.incrementAndGet();
+            last = value;
+        }
+
+        /** Number of records added. */
+        public long getCount() {
+            return count.get();
+        }
+
+        /** Last record added. */
+        public V getLast() {
+            return last;
+        }
+
+        @Override
+        public int compareTo(CountingDataCache<?> o) {
+            return topic.getName().compareTo(o.topic.getName());
+        }
+    }
+}
@@ -0,0 +1,89 @@
+/*
+ * Copyright 2017 The Hyve
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ * http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+package org.radarcns.android.device;
+
+import org.apache.avro.specific.SpecificRecord;
+import org.radarcns.android.data.DataCache;
+import org.radarcns.android.data.TableDataHandler;
+import org.radarcns.key.MeasurementKey;
+import org.radarcns.topic.AvroTopic;
+
+import java.io.IOException;
+
+/** Minimal stand-in for the RADAR device manager, sending data to its TableDataHandler. */
+public abstract class AbstractDeviceManager<S extends DeviceService, T extends BaseDeviceState>
+        implements DeviceManager {
+    private final S service;
+    private final T state;
+    private final TableDataHandler dataHandler;
+    private final MeasurementKey key;
+    private String name;
+    private boolean closed;
+
+    public AbstractDeviceManager(S service, T state, TableDataHandler dataHandler, String userId,
+            String sourceId) {
+        this.service = service;
+        this.state = state;
+        this.dataHandler = dataHandler;
+        this.key = new MeasurementKey(userId, sourceId);
+        this.closed = false;
+    }
+
+    public S getService() {
+        return service;
+    }
+
+    public T getState() {
+        return state;
+    }
+
+    public String getName() {
+        return name;
+    }
+
+    protected void setName(String name) {
+        this.name = name;
+    }
+
+    protected <V extends SpecificRecord> DataCache<MeasurementKey, V> getCache(
+            AvroTopic<MeasurementKey, V> topic) {
+        return dataHandler.getCache(topic);
+    }
+
+    protected <V extends SpecificRecord> void send(DataCache<MeasurementKey, V> table, V value) {
+        dataHandler.addMeasurement(table, key, value);
+    }
+
+    protected <V extends SpecificRecord> void trySend(AvroTopic<MeasurementKey, V> topic,
+            long offset, V value) {
+        dataHandler.addMeasurement(dataHandler.getCache(topic), key, value);
+    }
+
+    protected void updateStatus(DeviceStatusListener.Status status) {
+        state.setStatus(status);
+    }
+
+    public boolean isClosed() {
+        return closed;
+    }
+
+    @Override
+    public void close() throws IOException {
+        closed = true;
+        updateStatus(DeviceStatusListener.Status.DISCONNECTED);
+    }
+}
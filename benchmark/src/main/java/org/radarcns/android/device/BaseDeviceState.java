@@ -0,0 +1,56 @@
+/*
+ * Copyright 2017 The Hyve
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ * http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+package org.radarcns.android.device;
+
+import android.os.Parcel;
+import android.os.Parcelable;
+
+/** Minimal stand-in for the RADAR device state. */
+public class BaseDeviceState implements Parcelable {
+    public static final Creator<BaseDeviceState> CREATOR = new DeviceStateCreator<>(BaseDeviceState.class);
+
+    private DeviceStatusListener.Status status = DeviceStatusListener.Status.DISCONNECTED;
+
+    @Override
+    public synchronized void writeToParcel(Parcel dest, int flags) {
+        dest.writeInt(status.ordinal());
+    }
+
+    public synchronized void updateFromParcel(Parcel in) {
+        status = DeviceStatusListener.Status.values()[in.readInt()];
+    }
+
+    public synchronized DeviceStatusListener.Status getStatus() {
+        return status;
+    }
+
+    public synchronized void setStatus(DeviceStatusListener.Status status) {
+        this.status = status;
+    }
+
+    public boolean hasAcceleration() {
+        return false;
+    }
+
+    public float[] getAcceleration() {
+        return new float[] {Float.NaN, Float.NaN, Float.NaN};
+    }
+
+    public float getBatteryLevel() {
+        return Float.NaN;
+    }
+}
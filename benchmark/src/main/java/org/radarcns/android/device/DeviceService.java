@@ -0,0 +1,70 @@
+/*
+ * Copyright 2017 The Hyve
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ * http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+package org.radarcns.android.device;
+
+import android.app.Service;
+import android.os.Bundle;
+
+import org.apache.avro.specific.SpecificRecord;
+import org.radarcns.android.data.TableDataHandler;
+import org.radarcns.key.MeasurementKey;
+import org.radarcns.topic.AvroTopic;
+
+import java.util.Collections;
+import java.util.List;
+
+/**
+ * Minimal stand-in for the RADAR device service. It has an in-memory data handler, and creates
+ * its device manager on the first invocation.
+ */
+public abstract class DeviceService extends Service {
+    private final TableDataHandler dataHandler = new TableDataHandler();
+    private DeviceManager deviceManager;
+
+    protected abstract DeviceManager createDeviceManager();
+
+    protected abstract BaseDeviceState getDefaultState();
+
+    protected abstract DeviceTopics getTopics();
+
+    protected List<AvroTopic<MeasurementKey, ? extends SpecificRecord>> getCachedTopics() {
+        return Collections.emptyList();
+    }
+
+    public TableDataHandler getDataHandler() {
+        return dataHandler;
+    }
+
+    public String getUserId() {
+        return "benchmark";
+    }
+
+    /** Configure the service, creating the device manager if needed. */
+    public void invoke(Bundle bundle) {
+        onInvocation(bundle);
+        if (deviceManager == null) {
+            deviceManager = createDeviceManager();
+        }
+    }
+
+    protected void onInvocation(Bundle bundle) {
+    }
+
+    public DeviceManager getDeviceManager() {
+        return deviceManager;
+    }
+}
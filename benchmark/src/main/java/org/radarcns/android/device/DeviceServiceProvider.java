@@ -0,0 +1,69 @@
+/*
+ * Copyright 2017 The Hyve
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ * http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+package org.radarcns.android.device;
+
+import android.app.Activity;
+import android.os.Bundle;
+import android.os.Parcelable;
+
+import org.radarcns.android.RadarConfiguration;
+
+import java.util.List;
+
+/** Minimal stand-in for the RADAR device service provider. */
+public abstract class DeviceServiceProvider<T extends BaseDeviceState> {
+    private Activity activity;
+    private RadarConfiguration config = new RadarConfiguration();
+
+    public abstract Class<?> getServiceClass();
+
+    public abstract Parcelable.Creator<T> getStateCreator();
+
+    public abstract String getDisplayName();
+
+    public abstract List<String> needsPermissions();
+
+    public boolean isDisplayable() {
+        return true;
+    }
+
+    public Activity getActivity() {
+        return activity;
+    }
+
+    public void setActivity(Activity activity) {
+        this.activity = activity;
+    }
+
+    public RadarConfiguration getConfig() {
+        return config;
+    }
+
+    public void setConfig(RadarConfiguration config) {
+        this.config = config;
+    }
+
+    /** Create the bundle that configures the service. */
+    public Bundle createBundle() {
+        Bundle bundle = new Bundle();
+        configure(bundle);
+        return bundle;
+    }
+
+    protected void configure(Bundle bundle) {
+    }
+}
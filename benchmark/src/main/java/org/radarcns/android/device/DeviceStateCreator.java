@@ -0,0 +1,48 @@
+/*
+ * Copyright 2017 The Hyve
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ * http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+package org.radarcns.android.device;
+
+import android.os.Parcel;
+import android.os.Parcelable;
+
+import java.lang.reflect.Array;
+
+/** Minimal stand-in for the RADAR device state creator. */
+public class DeviceStateCreator<T extends BaseDeviceState> implements Parcelable.Creator<T> {
+    private final Class<T> stateClass;
+
+    public DeviceStateCreator(Class<T> stateClass) {
+        this.stateClass = stateClass;
+    }
+
+    @Override
+    public T createFromParcel(Parcel source) {
+        try {
+            T state = stateClass.newInstance();
+            state.updateFromParcel(source);
+            return state;
+        } catch (InstantiationException | IllegalAccessException ex) {
+            throw new IllegalStateException("Cannot instantiate state " + stateClass, ex);
+        }
+    }
+
+    @SuppressWarnings("unchecked")
+    @Override
+    public T[] newArray(int size) {
+        return (T[]) Array.newInstance(stateClass, size);
+    }
+}
@@ -0,0 +1,61 @@
+/*
+ * Copyright 2017 The Hyve
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ * http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+package org.radarcns.android.util;
+
+import java.io.IOException;
+import java.util.Map;
+import java.util.UUID;
+import java.util.concurrent.ConcurrentHashMap;
+
+/** In-memory stand-in for the RADAR persistent storage. Values are shared per class. */
+public class PersistentStorage {
+    private static final Map<String, Map<String, String>> STORES = new ConcurrentHashMap<>();
+
+    private final Map<String, String> store;
+
+    public PersistentStorage(Class<?> forClass) {
+        Map<String, String> newStore = new ConcurrentHashMap<>();
+        Map<String, String> existing = STORES.putIfAbsent(forClass.getName(), newStore);
+        store = existing != null ? existing : newStore;
+    }
+
+    public synchronized String loadOrStoreUUID(String key) {
+        String value = store.get(key);
+        if (value == null) {
+            value = UUID.randomUUID().toString();
+            store.put(key, value);
+        }
+        return value;
+    }
+
+    public synchronized String get(String key) throws IOException {
+        return store.get(key);
+    }
+
+    public synchronized String getOrSet(String key, String defaultValue) throws IOException {
+        String value = store.get(key);
+        if (value == null) {
+            store.put(key, defaultValue);
+            value = defaultValue;
+        }
+        return value;
+    }
+
+    public synchronized void put(String key, String value) throws IOException {
+        store.put(key, value);
+    }
+}
@@ -0,0 +1,26 @@
+/*
+ * Copyright 2017 The Hyve
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ * http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+package org.radarcns.phone;
+
+/** Stand-in for the resource identifiers that are generated in the Android build. */
+public final class R {
+    public static final class string {
+        public static final int phoneServiceDisplayName = 0x7f010000;
+        public static final int phoneLocationServiceDisplayName = 0x7f010001;
+        public static final int phoneLogServiceDisplayName = 0x7f010002;
+    }
+}
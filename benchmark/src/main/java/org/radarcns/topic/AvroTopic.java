@@ -0,0 +1,44 @@
+/*
+ * Copyright 2017 The Hyve
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ * http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+package org.radarcns.topic;
+
+import org.apache.avro.Schema;
+
+/** Minimal stand-in for the RADAR Avro topic. */
+public class AvroTopic<K, V> {
+    private final String name;
+    private final Schema valueSchema;
+    private final Class<V> valueClass;
+
+    public AvroTopic(String name, Schema valueSchema, Class<V> valueClass) {
+        this.name = name;
+        this.valueSchema = valueSchema;
+        this.valueClass = valueClass;
+    }
+
+    public String getName() {
+        return name;
+    }
+
+    public Schema getValueSchema() {
+        return valueSchema;
+    }
+
+    public Class<V> getValueClass() {
+        return valueClass;
+    }
+}
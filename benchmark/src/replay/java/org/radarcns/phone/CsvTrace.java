@@ -0,0 +1,79 @@
+/*
+ * Copyright 2017 The Hyve
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ * http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+package org.radarcns.phone;
+
+import java.io.BufferedReader;
+import java.io.IOException;
+import java.util.Locale;
+
+/**
+ * Trace read from CSV lines of the form {@code time,type,value...}, with time in seconds since
+ * the start of the trace and type the lowercase name of a {@link TraceEvent.Type}. Empty lines
+ * and lines starting with {@code #} are skipped. For example:
+ * <pre>
+ * # time,type,values
+ * 0.00,acceleration,0.1,-0.2,9.8
+ * 0.20,light,120
+ * 1.00,battery,0.85,0
+ * 2.50,location,52.09,5.12,10,8
+ * 30.0,call,65,2,7
+ * 45.0,sms,1,42,7
+ * </pre>
+ */
+class CsvTrace implements Trace {
+    private final BufferedReader reader;
+    private int lineNumber;
+
+    CsvTrace(BufferedReader reader) {
+        this.reader = reader;
+        this.lineNumber = 0;
+    }
+
+    @Override
+    public TraceEvent next() throws IOException {
+        String line;
+        while ((line = reader.readLine()) != null) {
+            lineNumber++;
+            line = line.trim();
+            if (line.isEmpty() || line.startsWith("#")) {
+                continue;
+            }
+            String[] fields = line.split(",");
+            if (fields.length < 2) {
+                throw new IOException("Line " + lineNumber + " has no event type: " + line);
+            }
+            try {
+                double time = Double.parseDouble(fields[0].trim());
+                TraceEvent.Type type = TraceEvent.Type.valueOf(
+                        fields[1].trim().toUpperCase(Locale.US));
+                double[] values = new double[fields.length - 2];
+                for (int i = 0; i < values.length; i++) {
+                    values[i] = Double.parseDouble(fields[i + 2].trim());
+                }
+                return new TraceEvent(time, type, values);
+            } catch (IllegalArgumentException ex) {
+                throw new IOException("Line " + lineNumber + " is not a valid event: " + line, ex);
+            }
+        }
+        return null;
+    }
+
+    @Override
+    public void close() throws IOException {
+        reader.close();
+    }
+}
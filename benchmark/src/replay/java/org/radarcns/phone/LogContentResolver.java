@@ -0,0 +1,175 @@
+/*
+ * Copyright 2017 The Hyve
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ * http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+package org.radarcns.phone;
+
+import android.content.ContentResolver;
+import android.database.Cursor;
+import android.net.Uri;
+import android.provider.CallLog;
+import android.provider.Telephony;
+
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.List;
+
+/**
+ * In-memory call and SMS log, queried by the log reader of the PhoneLogManager as it would query
+ * the Android content providers. Only selections of the form {@code "date > N"}, sorted by
+ * ascending date, are supported. Rows must be added in order of their date. The log counts how
+ * many of its rows have been read, so that a replay can tell how far the reader got. Rows count
+ * as read once the cursor that moved to them is closed, which the reader does after sending them.
+ */
+final class LogContentResolver extends ContentResolver {
+    private final Table calls = new Table(CallLog.Calls.DATE, CallLog.Calls.NUMBER,
+            CallLog.Calls.DURATION, CallLog.Calls.TYPE);
+    private final Table messages = new Table(Telephony.Sms.DATE, Telephony.Sms.ADDRESS,
+            Telephony.Sms.TYPE, Telephony.Sms.BODY);
+
+    /** Add a call to the call log, with its date in milliseconds. */
+    void addCall(long date, String number, float duration, int type) {
+        calls.add(new Object[] {date, number, duration, type});
+    }
+
+    /** Add a message to the SMS log, with its date in milliseconds. */
+    void addSms(long date, String address, int type, String body) {
+        messages.add(new Object[] {date, address, type, body});
+    }
+
+    /** Number of rows that were added to the call and SMS logs. */
+    long getRowCount() {
+        return calls.getRowCount() + messages.getRowCount();
+    }
+
+    /** Number of rows that were read by a cursor that has since been closed. */
+    long getRowsRead() {
+        return calls.getRowsRead() + messages.getRowsRead();
+    }
+
+    @Override
+    public Cursor query(Uri uri, String[] projection, String selection,
+            String[] selectionArgs, String sortOrder) {
+        Table table;
+        if (uri.toString().equals(CallLog.Calls.CONTENT_URI.toString())) {
+            table = calls;
+        } else if (uri.toString().equals(Telephony.Sms.CONTENT_URI.toString())) {
+            table = messages;
+        } else {
+            return null;
+        }
+        long after = Long.parseLong(selection.substring(selection.indexOf('>') + 1).trim());
+        return table.query(after);
+    }
+
+    /** Rows of one log. The first column is the date. */
+    private static final class Table {
+        private final List<String> columns;
+        private final List<Object[]> rows;
+        private int rowsRead;
+
+        private Table(String... columns) {
+            this.columns = Arrays.asList(columns);
+            this.rows = new ArrayList<>();
+            this.rowsRead = 0;
+        }
+
+        private synchronized void add(Object[] row) {
+            rows.add(row);
+        }
+
+        private synchronized int getRowCount() {
+            return rows.size();
+        }
+
+        private synchronized int getRowsRead() {
+            return rowsRead;
+        }
+
+        private synchronized void setRead(int index) {
+            rowsRead = Math.max(rowsRead, index + 1);
+        }
+
+        /** Cursor over the rows that exist now, with a date after given date. */
+        private synchronized Cursor query(long after) {
+            int start = 0;
+            while (start < rows.size() && (Long) rows.get(start)[0] <= after) {
+                start++;
+            }
+            return new TableCursor(this, start, rows.subList(start, rows.size()).toArray(new Object[0][]));
+        }
+    }
+
+    private static final class TableCursor implements Cursor {
+        private final Table table;
+        private final int offset;
+        private final Object[][] rows;
+        private int position;
+
+        private TableCursor(Table table, int offset, Object[][] rows) {
+            this.table = table;
+            this.offset = offset;
+            this.rows = rows;
+            this.position = -1;
+        }
+
+        @Override
+        public int getCount() {
+            return rows.length;
+        }
+
+        @Override
+        public boolean moveToNext() {
+            if (position + 1 >= rows.length) {
+                position = rows.length;
+                return false;
+            }
+            position++;
+            return true;
+        }
+
+        @Override
+        public int getColumnIndex(String columnName) {
+            return table.columns.indexOf(columnName);
+        }
+
+        @Override
+        public long getLong(int columnIndex) {
+            return ((Number) rows[position][columnIndex]).longValue();
+        }
+
+        @Override
+        public int getInt(int columnIndex) {
+            return ((Number) rows[position][columnIndex]).intValue();
+        }
+
+        @Override
+        public float getFloat(int columnIndex) {
+            return ((Number) rows[position][columnIndex]).floatValue();
+        }
+
+        @Override
+        public String getString(int columnIndex) {
+            return (String) rows[position][columnIndex];
+        }
+
+        @Override
+        public void close() {
+            if (position >= 0) {
+                table.setRead(offset + Math.min(position, rows.length - 1));
+            }
+        }
+    }
+}
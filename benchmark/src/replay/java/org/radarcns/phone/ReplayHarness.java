@@ -0,0 +1,428 @@
+/*
+ * Copyright 2017 The Hyve
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ * http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+package org.radarcns.phone;
+
+import android.content.ContentResolver;
+import android.content.Intent;
+import android.hardware.Sensor;
+import android.hardware.SensorEvent;
+import android.location.Location;
+import android.location.LocationManager;
+import android.os.BatteryManager;
+import android.os.Bundle;
+import android.os.SystemClock;
+
+import org.radarcns.android.data.TableDataHandler;
+import org.radarcns.android.device.DeviceService;
+
+import java.io.BufferedReader;
+import java.io.FileInputStream;
+import java.io.IOException;
+import java.io.InputStreamReader;
+import java.nio.charset.StandardCharsets;
+import java.util.Arrays;
+import java.util.Collections;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Locale;
+import java.util.Map;
+import java.util.concurrent.BlockingQueue;
+import java.util.concurrent.LinkedBlockingQueue;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicLong;
+import java.util.concurrent.locks.LockSupport;
+
+/**
+ * Replays a sensor trace through the phone sensor, location and log managers, and reports the
+ * sustained throughput and backlog. Events are released at their trace time divided by a
+ * speed-up factor, and delivered to each manager on its own thread, like the handler threads on
+ * a phone. Calls and SMS are added to an in-memory call and SMS log instead, which the log
+ * manager reads in batches, as it reads the content providers on a phone. The backlog is the
+ * number of events that were released but not yet processed, or not yet read from the log. Data
+ * is added to the in-memory TableDataHandler stand-in, which only counts records per topic.
+ *
+ * <p>Run with {@code ./gradlew :benchmark:replay -PreplayArgs="--speedup 100"}. Options:
+ * <dl>
+ * <dt>{@code --trace FILE}</dt><dd>CSV trace as described in {@link CsvTrace}. By default a
+ *     {@link SyntheticTrace} is generated.</dd>
+ * <dt>{@code --duration S}</dt><dd>duration of the synthetic trace in seconds, default 3600.</dd>
+ * <dt>{@code --acceleration-rate HZ}</dt><dd>accelerometer rate of the synthetic trace,
+ *     default 50.</dd>
+ * <dt>{@code --seed N}</dt><dd>random seed of the synthetic trace, default 1.</dd>
+ * <dt>{@code --speedup X}</dt><dd>speed-up factor of the replay, or 0 to replay as fast as
+ *     possible, default 10.</dd>
+ * <dt>{@code --acceleration-buffer N}, {@code --acceleration-block N},
+ *     {@code --acceleration-window S}</dt><dd>acceleration buffer size, block size and window
+ *     length, as in the plugin configuration, default 0.</dd>
+ * <dt>{@code --log-interval S}</dt><dd>period of reading the call and SMS log in seconds,
+ *     default 1.</dd>
+ * <dt>{@code --report-interval S}</dt><dd>seconds between progress reports, default 1.</dd>
+ * <dt>{@code --max-backlog N}</dt><dd>backlog at which the replay is aborted as not sustainable,
+ *     default 1000000.</dd>
+ * </dl>
+ * The process exits with status 1 if the replay was aborted.
+ */
+public final class ReplayHarness {
+    private static final List<String> OPTIONS = Arrays.asList("trace", "duration",
+            "acceleration-rate", "seed", "speedup", "acceleration-buffer", "acceleration-block",
+            "acceleration-window", "log-interval", "report-interval", "max-backlog");
+
+    private final Map<String, String> options;
+    private final PhoneSensorService sensorService;
+    private final PhoneLocationService locationService;
+    private final PhoneLogService logService;
+    private final PhoneSensorManager sensorManager;
+    private final PhoneLocationManager locationManager;
+    private final PhoneLogManager logManager;
+    private final LogContentResolver logResolver;
+    private final Worker sensorWorker;
+    private final Worker locationWorker;
+    private final Worker logWorker;
+    private final Sensor accelerometer;
+    private final Sensor lightSensor;
+    private final long startElapsedNanos;
+    private final long startMillis;
+    private final AtomicLong released;
+    private volatile double traceTime;
+
+    private ReplayHarness(Map<String, String> options) {
+        this.options = options;
+
+        Bundle bundle = new Bundle();
+        bundle.putInt(PhoneSensorProvider.PHONE_ACCELERATION_BUFFER_SIZE_KEY,
+                getInt("acceleration-buffer", 0));
+        bundle.putInt(PhoneSensorProvider.PHONE_ACCELERATION_BLOCK_SIZE_KEY,
+                getInt("acceleration-block", 0));
+        bundle.putFloat(PhoneSensorProvider.PHONE_ACCELERATION_WINDOW_KEY,
+                (float) getDouble("acceleration-window", 0d));
+        sensorService = new PhoneSensorService();
+        sensorService.invoke(bundle);
+        sensorManager = (PhoneSensorManager) sensorService.getDeviceManager();
+
+        locationService = new PhoneLocationService();
+        locationService.invoke(new Bundle());
+        locationManager = (PhoneLocationManager) locationService.getDeviceManager();
+
+        logResolver = new LogContentResolver();
+        logService = new PhoneLogService() {
+            @Override
+            public ContentResolver getContentResolver() {
+                return logResolver;
+            }
+        };
+        logService.invoke(new Bundle());
+        logManager = (PhoneLogManager) logService.getDeviceManager();
+        long logInterval = Math.max((long) getDouble("log-interval", 1d), 1L);
+        logManager.setCallLogUpdateRate(logInterval);
+        logManager.setSmsLogUpdateRate(logInterval);
+
+        sensorWorker = new Worker("PhoneSensors");
+        locationWorker = new Worker("PhoneLocation");
+        logWorker = new Worker("PhoneLog");
+        accelerometer = new Sensor(Sensor.TYPE_ACCELEROMETER);
+        lightSensor = new Sensor(Sensor.TYPE_LIGHT);
+        startElapsedNanos = SystemClock.elapsedRealtimeNanos();
+        startMillis = System.currentTimeMillis();
+        released = new AtomicLong();
+        traceTime = 0d;
+    }
+
+    public static void main(String[] args) throws IOException, InterruptedException {
+        Map<String, String> options = new HashMap<>();
+        for (int i = 0; i < args.length; i += 2) {
+            String name = args[i].startsWith("--") ? args[i].substring(2) : args[i];
+            if (!OPTIONS.contains(name) || i + 1 >= args.length) {
+                System.err.println("Usage: ReplayHarness [--option value]... with options "
+                        + OPTIONS + "; see the ReplayHarness documentation.");
+                System.exit(2);
+            }
+            options.put(name, args[i + 1]);
+        }
+        boolean sustained = new ReplayHarness(options).run();
+        System.exit(sustained ? 0 : 1);
+    }
+
+    /**
+     * Replay the trace, reporting progress until it is processed.
+     * @return whether the backlog stayed below the maximum.
+     */
+    private boolean run() throws IOException, InterruptedException {
+        final double speedup = getDouble("speedup", 10d);
+        final long maxBacklog = getInt("max-backlog", 1_000_000);
+        long reportInterval = (long) (getDouble("report-interval", 1d) * 1000d);
+
+        final Trace trace = openTrace();
+        final boolean[] aborted = {false};
+        final IOException[] readError = {null};
+        Thread pacer = new Thread(new Runnable() {
+            @Override
+            public void run() {
+                try {
+                    aborted[0] = !release(trace, speedup, maxBacklog);
+                } catch (IOException ex) {
+                    readError[0] = ex;
+                } finally {
+                    sensorWorker.queue.add(TraceEvent.END);
+                    locationWorker.queue.add(TraceEvent.END);
+                    logWorker.queue.add(TraceEvent.END);
+                }
+            }
+        }, "ReplayPacer");
+
+        long start = System.nanoTime();
+        logManager.start(Collections.<String>emptySet());
+        sensorWorker.start();
+        locationWorker.start();
+        logWorker.start();
+        pacer.start();
+
+        long maxObservedBacklog = 0L;
+        long lastProcessed = 0L;
+        long lastReport = start;
+        boolean isDone = false;
+        System.out.println(" wall (s) | trace (s) | events/s | backlog");
+        while (!isDone) {
+            isDone = awaitWorkers(lastReport + TimeUnit.MILLISECONDS.toNanos(reportInterval));
+            long now = System.nanoTime();
+            long processed = processed();
+            long backlog = released.get() - processed;
+            maxObservedBacklog = Math.max(maxObservedBacklog, backlog);
+            System.out.println(String.format(Locale.US, "%9.1f | %9.1f | %8.0f | %7d",
+                    (now - start) / 1e9, traceTime,
+                    (processed - lastProcessed) * 1e9 / Math.max(now - lastReport, 1L), backlog));
+            lastProcessed = processed;
+            lastReport = now;
+        }
+        double wallTime = (lastReport - start) / 1e9;
+        pacer.join();
+        trace.close();
+
+        sensorManager.close();
+        locationManager.close();
+        logManager.close();
+
+        if (readError[0] != null) {
+            throw readError[0];
+        }
+
+        long processed = processed();
+        System.out.println();
+        System.out.println(String.format(Locale.US,
+                "Processed %d events of %.1f s trace in %.1f s: %.0f events/s, effective speed-up %.1f, maximum backlog %d",
+                processed, traceTime, wallTime, processed / wallTime, traceTime / wallTime,
+                maxObservedBacklog));
+        printRecords(sensorService, wallTime);
+        printRecords(locationService, wallTime);
+        printRecords(logService, wallTime);
+        if (aborted[0]) {
+            System.out.println("Replay aborted: backlog exceeded " + maxBacklog
+                    + " events, the managers cannot keep up with the replay");
+        }
+        return !aborted[0];
+    }
+
+    /**
+     * Wait until all workers are done or until the deadline passes.
+     * @param deadline deadline in System.nanoTime() time.
+     * @return whether all workers are done.
+     */
+    private boolean awaitWorkers(long deadline) throws InterruptedException {
+        for (Worker worker : Arrays.asList(sensorWorker, locationWorker, logWorker)) {
+            long remaining = TimeUnit.NANOSECONDS.toMillis(deadline - System.nanoTime());
+            if (remaining > 0L) {
+                worker.join(remaining);
+            }
+            if (worker.isAlive()) {
+                return false;
+            }
+        }
+        // the log manager reads the last calls and SMS in its next run
+        long remaining = TimeUnit.NANOSECONDS.toMillis(deadline - System.nanoTime());
+        if (logResolver.getRowsRead() < logResolver.getRowCount() && remaining > 0L) {
+            Thread.sleep(remaining);
+        }
+        return logResolver.getRowsRead() >= logResolver.getRowCount();
+    }
+
+    private Trace openTrace() throws IOException {
+        String path = options.get("trace");
+        if (path != null) {
+            return new CsvTrace(new BufferedReader(new InputStreamReader(
+                    new FileInputStream(path), StandardCharsets.UTF_8)));
+        } else {
+            return new SyntheticTrace(getDouble("duration", 3600d),
+                    getDouble("acceleration-rate", 50d), getInt("seed", 1));
+        }
+    }
+
+    /**
+     * Release events to the workers at their trace time divided by the speed-up.
+     * @return false if the replay was aborted because the backlog exceeded the maximum.
+     */
+    private boolean release(Trace trace, double speedup, long maxBacklog) throws IOException {
+        long start = System.nanoTime();
+        TraceEvent event;
+        while ((event = trace.next()) != null) {
+            if (speedup > 0d) {
+                long due = start + (long) (event.getTime() / speedup * 1e9);
+                long wait;
+                while ((wait = due - System.nanoTime()) > 0L) {
+                    LockSupport.parkNanos(wait);
+                }
+            }
+            if (released.get() - processed() > maxBacklog) {
+                return false;
+            }
+            traceTime = event.getTime();
+            released.incrementAndGet();
+            getWorker(event.getType()).queue.add(event);
+        }
+        return true;
+    }
+
+    private Worker getWorker(TraceEvent.Type type) {
+        switch (type) {
+            case LOCATION:
+                return locationWorker;
+            case CALL:
+            case SMS:
+                return logWorker;
+            default:
+                return sensorWorker;
+        }
+    }
+
+    private long processed() {
+        return sensorWorker.processed.get() + locationWorker.processed.get()
+                + logResolver.getRowsRead();
+    }
+
+    /** Deliver an event to its manager, as the Android framework would. */
+    private void deliver(TraceEvent event) {
+        switch (event.getType()) {
+            case ACCELERATION: {
+                SensorEvent sensorEvent = createSensorEvent(accelerometer, event, 3);
+                sensorManager.onSensorChanged(sensorEvent);
+                break;
+            }
+            case LIGHT: {
+                SensorEvent sensorEvent = createSensorEvent(lightSensor, event, 1);
+                sensorManager.onSensorChanged(sensorEvent);
+                break;
+            }
+            case BATTERY: {
+                Intent intent = new Intent(Intent.ACTION_BATTERY_CHANGED);
+                intent.putExtra(BatteryManager.EXTRA_LEVEL, (int) Math.round(event.getValue(0) * 100d));
+                intent.putExtra(BatteryManager.EXTRA_SCALE, 100);
+                boolean plugged = event.getValue(1) > 0d;
+                intent.putExtra(BatteryManager.EXTRA_PLUGGED, plugged ? 1 : 0);
+                intent.putExtra(BatteryManager.EXTRA_STATUS, plugged
+                        ? BatteryManager.BATTERY_STATUS_CHARGING
+                        : BatteryManager.BATTERY_STATUS_DISCHARGING);
+                sensorManager.processBatteryStatus(intent);
+                break;
+            }
+            case LOCATION: {
+                Location location = new Location(event.getValue(3) < 20d
+                        ? LocationManager.GPS_PROVIDER : LocationManager.NETWORK_PROVIDER);
+                location.setTime(getTraceMillis(event));
+                location.setLatitude(event.getValue(0));
+                location.setLongitude(event.getValue(1));
+                location.setAltitude(event.getValue(2));
+                location.setAccuracy((float) event.getValue(3));
+                locationManager.onLocationChanged(location);
+                break;
+            }
+            case CALL:
+                logResolver.addCall(getTraceMillis(event), getContact(event.getValue(2)),
+                        (float) event.getValue(0), (int) event.getValue(1));
+                break;
+            case SMS:
+                logResolver.addSms(getTraceMillis(event), getContact(event.getValue(2)),
+                        (int) event.getValue(0), createMessage((int) event.getValue(1)));
+                break;
+            default:
+                throw new IllegalArgumentException("Unknown event type " + event.getType());
+        }
+    }
+
+    private SensorEvent createSensorEvent(Sensor sensor, TraceEvent event, int size) {
+        SensorEvent sensorEvent = new SensorEvent(size);
+        sensorEvent.sensor = sensor;
+        sensorEvent.timestamp = startElapsedNanos + (long) (event.getTime() * 1e9);
+        for (int i = 0; i < size; i++) {
+            sensorEvent.values[i] = (float) event.getValue(i);
+        }
+        return sensorEvent;
+    }
+
+    private long getTraceMillis(TraceEvent event) {
+        return startMillis + (long) (event.getTime() * 1000d);
+    }
+
+    /** Fictional phone number of a contact. */
+    private static String getContact(double contact) {
+        return String.format(Locale.US, "+3160%07d", (long) contact);
+    }
+
+    private static String createMessage(int length) {
+        char[] message = new char[Math.max(length, 0)];
+        Arrays.fill(message, 'x');
+        return new String(message);
+    }
+
+    private static void printRecords(DeviceService service, double wallTime) {
+        for (TableDataHandler.CountingDataCache<?> cache : service.getDataHandler().getCaches()) {
+            System.out.println(String.format(Locale.US, "  %-36s %10d records %10.0f records/s",
+                    cache.getTopic().getName(), cache.getCount(), cache.getCount() / wallTime));
+        }
+    }
+
+    private int getInt(String name, int defaultValue) {
+        String value = options.get(name);
+        return value != null ? Integer.parseInt(value) : defaultValue;
+    }
+
+    private double getDouble(String name, double defaultValue) {
+        String value = options.get(name);
+        return value != null ? Double.parseDouble(value) : defaultValue;
+    }
+
+    /** Delivers the events of a queue to a manager, on a single thread. */
+    private final class Worker extends Thread {
+        private final BlockingQueue<TraceEvent> queue = new LinkedBlockingQueue<>();
+        private final AtomicLong processed = new AtomicLong();
+
+        private Worker(String name) {
+            super(name);
+            setDaemon(true);
+        }
+
+        @Override
+        public void run() {
+            try {
+                TraceEvent event;
+                while ((event = queue.take()) != TraceEvent.END) {
+                    deliver(event);
+                    processed.incrementAndGet();
+                }
+            } catch (InterruptedException ex) {
+                Thread.currentThread().interrupt();
+            }
+        }
+    }
+}
@@ -0,0 +1,114 @@
+/*
+ * Copyright 2017 The Hyve
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ * http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+package org.radarcns.phone;
+
+import java.util.Random;
+
+/**
+ * Generated trace of a phone that is carried around. Acceleration alternates between walking and
+ * lying still every minute, light is sampled at 5 Hz, the battery drains by one percent every
+ * ten minutes, location follows a random walk with a fix every minute, and there is a call every
+ * half hour and an SMS every ten minutes. The trace is deterministic for a given seed.
+ */
+class SyntheticTrace implements Trace {
+    private static final double GRAVITY = 9.80665;
+    private static final double LIGHT_PERIOD = 0.2;
+    private static final double BATTERY_PERIOD = 60d;
+    private static final double BATTERY_DRAIN = 0.01 / (10*60d); // per second
+    private static final double LOCATION_PERIOD = 60d;
+    private static final double CALL_PERIOD = 30*60d;
+    private static final double SMS_PERIOD = 10*60d;
+    private static final int NUM_CONTACTS = 100;
+
+    private final double duration;
+    private final double[] periods;
+    private final double[] nextTimes;
+    private final Random random;
+    private double latitude;
+    private double longitude;
+
+    /**
+     * Synthetic trace.
+     * @param duration duration of the trace in seconds.
+     * @param accelerationRate accelerometer rate in Hz.
+     * @param seed random seed.
+     */
+    SyntheticTrace(double duration, double accelerationRate, long seed) {
+        this.duration = duration;
+        TraceEvent.Type[] types = TraceEvent.Type.values();
+        periods = new double[types.length];
+        periods[TraceEvent.Type.ACCELERATION.ordinal()] = 1d / accelerationRate;
+        periods[TraceEvent.Type.LIGHT.ordinal()] = LIGHT_PERIOD;
+        periods[TraceEvent.Type.BATTERY.ordinal()] = BATTERY_PERIOD;
+        periods[TraceEvent.Type.LOCATION.ordinal()] = LOCATION_PERIOD;
+        periods[TraceEvent.Type.CALL.ordinal()] = CALL_PERIOD;
+        periods[TraceEvent.Type.SMS.ordinal()] = SMS_PERIOD;
+        nextTimes = new double[types.length];
+        random = new Random(seed);
+        latitude = 52.0907;
+        longitude = 5.1214;
+    }
+
+    @Override
+    public TraceEvent next() {
+        int index = 0;
+        for (int i = 1; i < nextTimes.length; i++) {
+            if (nextTimes[i] < nextTimes[index]) {
+                index = i;
+            }
+        }
+        double time = nextTimes[index];
+        if (time >= duration) {
+            return null;
+        }
+        nextTimes[index] += periods[index];
+        TraceEvent.Type type = TraceEvent.Type.values()[index];
+
+        switch (type) {
+            case ACCELERATION:
+                // walk at 2 Hz during even minutes, lie still during odd minutes
+                double amplitude = ((long) (time / 60d)) % 2 == 0 ? 2d : 0.02d;
+                double phase = 2d * Math.PI * 2d * time;
+                return new TraceEvent(time, type,
+                        amplitude * 0.3 * Math.sin(phase) + 0.1 * random.nextGaussian(),
+                        amplitude * 0.5 * Math.cos(phase) + 0.1 * random.nextGaussian(),
+                        GRAVITY + amplitude * Math.sin(phase) + 0.1 * random.nextGaussian());
+            case LIGHT:
+                return new TraceEvent(time, type, 100d + 10d * random.nextGaussian());
+            case BATTERY:
+                return new TraceEvent(time, type, Math.max(0d, 1d - BATTERY_DRAIN * time), 0d);
+            case LOCATION:
+                latitude += 0.0005 * random.nextGaussian();
+                longitude += 0.0005 * random.nextGaussian();
+                return new TraceEvent(time, type, latitude, longitude,
+                        10d + random.nextGaussian(), 5d + 20d * random.nextDouble());
+            case CALL:
+                return new TraceEvent(time, type, Math.floor(-120d * Math.log(random.nextDouble())),
+                        1 + random.nextInt(3), random.nextInt(NUM_CONTACTS));
+            case SMS:
+                return new TraceEvent(time, type, 1 + random.nextInt(2), 1 + random.nextInt(160),
+                        random.nextInt(NUM_CONTACTS));
+            default:
+                throw new IllegalStateException("Unknown event type " + type);
+        }
+    }
+
+    @Override
+    public void close() {
+        // nothing to close
+    }
+}
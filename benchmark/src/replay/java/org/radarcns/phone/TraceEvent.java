@@ -0,0 +1,66 @@
+/*
+ * Copyright 2017 The Hyve
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ * http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+package org.radarcns.phone;
+
+/** Single event of a replayed trace. */
+final class TraceEvent {
+    enum Type {
+        /** Accelerometer values x, y and z in m/s^2. */
+        ACCELERATION,
+        /** Light sensor value in lux. */
+        LIGHT,
+        /** Battery level as a fraction, and whether the battery is plugged in (0 or 1). */
+        BATTERY,
+        /** Latitude and longitude in degrees, altitude in m and accuracy in m. */
+        LOCATION,
+        /** Call duration in s, CallLog type code and contact number. */
+        CALL,
+        /** SMS Telephony type code, message length and contact number. */
+        SMS
+    }
+
+    /** Marker to stop replaying. */
+    static final TraceEvent END = new TraceEvent(Double.POSITIVE_INFINITY, null, new double[0]);
+
+    private final double time;
+    private final Type type;
+    private final double[] values;
+
+    /**
+     * Trace event.
+     * @param time time in seconds since the start of the trace.
+     * @param type event type.
+     * @param values event values, as described per type.
+     */
+    TraceEvent(double time, Type type, double... values) {
+        this.time = time;
+        this.type = type;
+        this.values = values;
+    }
+
+    double getTime() {
+        return time;
+    }
+
+    Type getType() {
+        return type;
+    }
+
+    double getValue(int index) {
+        return index < values.length ? values[index] : Double.NaN;
+    }
+}
@@ -0,0 +1,150 @@
+/*
+ * Copyright 2017 The Hyve
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ * http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+package org.radarcns.phone;
+
+/**
+ * Computes summary statistics of acceleration over fixed time windows. Statistics are updated
+ * incrementally for each sample, so no samples are stored. Windows are aligned to multiples of
+ * the window length in UTC. This class is not thread-safe.
+ *
+ * Zero crossings are counted relative to the mean of the previous window, or to the first sample
+ * if there is no previous window, since the mean of the current window is not known yet.
+ */
+class AccelerationAggregator {
+    private static final int NUM_AXES = 3;
+
+    private final double windowLength;
+
+    private double windowStart;
+    private int count;
+    private final double[] mean = new double[NUM_AXES];
+    private final double[] sumSquaredDiff = new double[NUM_AXES];
+    private final float[] min = new float[NUM_AXES];
+    private final float[] max = new float[NUM_AXES];
+    private final double[] crossingReference = new double[NUM_AXES];
+    private final boolean[] aboveReference = new boolean[NUM_AXES];
+    private final int[] crossings = new int[NUM_AXES];
+    private double sumMagnitude;
+    private boolean hasReference;
+
+    /**
+     * Aggregator of acceleration.
+     * @param windowLength length of a window in seconds.
+     */
+    AccelerationAggregator(double windowLength) {
+        if (windowLength <= 0d) {
+            throw new IllegalArgumentException("Window length must be positive");
+        }
+        this.windowLength = windowLength;
+        this.hasReference = false;
+        reset();
+    }
+
+    double getWindowLength() {
+        return windowLength;
+    }
+
+    boolean isEmpty() {
+        return count == 0;
+    }
+
+    /** Whether a sample at given time falls outside the current, non-empty window. */
+    boolean isWindowComplete(double time) {
+        return count > 0 && time >= windowStart + windowLength;
+    }
+
+    /** Add a sample to the current window. */
+    void add(double time, float x, float y, float z) {
+        if (count == 0) {
+            windowStart = Math.floor(time / windowLength) * windowLength;
+        }
+        count++;
+        update(0, x);
+        update(1, y);
+        update(2, z);
+        sumMagnitude += Math.abs(x) + Math.abs(y) + Math.abs(z);
+        hasReference = true;
+    }
+
+    private void update(int axis, float value) {
+        // Welford's online algorithm for mean and variance
+        double delta = value - mean[axis];
+        mean[axis] += delta / count;
+        sumSquaredDiff[axis] += delta * (value - mean[axis]);
+
+        if (value < min[axis]) {
+            min[axis] = value;
+        }
+        if (value > max[axis]) {
+            max[axis] = value;
+        }
+
+        if (!hasReference) {
+            crossingReference[axis] = value;
+            aboveReference[axis] = false;
+        } else {
+            boolean isAbove = value > crossingReference[axis];
+            if (isAbove != aboveReference[axis]) {
+                if (count > 1) {
+                    crossings[axis]++;
+                }
+                aboveReference[axis] = isAbove;
+            }
+        }
+    }
+
+    /**
+     * Create a record of the current window and start a new window.
+     * @param timeReceived time that the window was closed, in seconds UTC.
+     * @throws IllegalStateException if the window is empty.
+     */
+    PhoneAccelerationWindow createRecord(double timeReceived) {
+        if (count == 0) {
+            throw new IllegalStateException("Cannot create record of an empty window");
+        }
+        PhoneAccelerationWindow value = new PhoneAccelerationWindow(
+                windowStart, timeReceived, (float) windowLength, count,
+                (float) mean[0], (float) mean[1], (float) mean[2],
+                variance(0), variance(1), variance(2),
+                min[0], min[1], min[2],
+                max[0], max[1], max[2],
+                (float) (sumMagnitude / count),
+                crossings[0], crossings[1], crossings[2]);
+
+        for (int i = 0; i < NUM_AXES; i++) {
+            crossingReference[i] = mean[i];
+        }
+        reset();
+        return value;
+    }
+
+    private float variance(int axis) {
+        return count > 1 ? (float) (sumSquaredDiff[axis] / (count - 1)) : 0f;
+    }
+
+    private void reset() {
+        count = 0;
+        sumMagnitude = 0d;
+        for (int i = 0; i < NUM_AXES; i++) {
+            mean[i] = 0d;
+            sumSquaredDiff[i] = 0d;
+            min[i] = Float.POSITIVE_INFINITY;
+            max[i] = Float.NEGATIVE_INFINITY;
+            crossings[i] = 0;
+        }
+    }
+}
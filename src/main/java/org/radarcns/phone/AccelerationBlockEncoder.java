@@ -0,0 +1,129 @@
+/*
+ * Copyright 2017 The Hyve
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ * http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+package org.radarcns.phone;
+
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.List;
+
+/**
+ * Encodes the samples of an acceleration buffer as a single block record. Sample times are
+ * stored as microsecond deltas, which Avro encodes in one to three bytes each instead of eight.
+ * Acceleration is optionally quantized to a fixed step in the 16-bit signed range, which Avro
+ * encodes in at most three bytes instead of four.
+ */
+class AccelerationBlockEncoder {
+    private final float quantizationStep;
+
+    /**
+     * Block encoder.
+     * @param quantizationStep acceleration in g per quantized unit, or 0 to store floats.
+     */
+    AccelerationBlockEncoder(float quantizationStep) {
+        if (quantizationStep < 0f) {
+            throw new IllegalArgumentException("Quantization step must not be negative");
+        }
+        this.quantizationStep = quantizationStep;
+    }
+
+    float getQuantizationStep() {
+        return quantizationStep;
+    }
+
+    /**
+     * Create block records of all samples in a buffer. A new block is started when the time
+     * between two samples does not fit in a microsecond delta, so usually a single block is
+     * created. The buffer is not modified.
+     * @throws IllegalArgumentException if the buffer is empty.
+     */
+    List<PhoneAccelerationBlock> encode(AccelerationBuffer buffer) {
+        int size = buffer.size();
+        if (size == 0) {
+            throw new IllegalArgumentException("Cannot encode an empty buffer");
+        }
+        List<PhoneAccelerationBlock> blocks = new ArrayList<>(1);
+        int start = 0;
+        while (start < size) {
+            start = encodeBlock(buffer, start, blocks);
+        }
+        return blocks;
+    }
+
+    /**
+     * Encode samples from given start index into a block, up to the first sample whose time delta
+     * does not fit in an int.
+     * @return index of the first sample that was not encoded.
+     */
+    private int encodeBlock(AccelerationBuffer buffer, int start, List<PhoneAccelerationBlock> blocks) {
+        int size = buffer.size();
+        double startTime = buffer.getTime(start);
+        List<Integer> timeDeltas = new ArrayList<>(size - start - 1);
+        // deltas of rounded offsets, so rounding errors do not accumulate
+        long previousOffset = 0L;
+        int end = start + 1;
+        for (; end < size; end++) {
+            long offset = Math.round((buffer.getTime(end) - startTime) * 1_000_000d);
+            long delta = offset - previousOffset;
+            if (delta > Integer.MAX_VALUE || delta < Integer.MIN_VALUE) {
+                break;
+            }
+            timeDeltas.add((int) delta);
+            previousOffset = offset;
+        }
+        int count = end - start;
+
+        List<Float> x, y, z;
+        List<Integer> quantizedX, quantizedY, quantizedZ;
+        if (quantizationStep > 0f) {
+            x = y = z = Collections.emptyList();
+            quantizedX = new ArrayList<>(count);
+            quantizedY = new ArrayList<>(count);
+            quantizedZ = new ArrayList<>(count);
+            for (int i = start; i < end; i++) {
+                quantizedX.add(quantize(buffer.getX(i)));
+                quantizedY.add(quantize(buffer.getY(i)));
+                quantizedZ.add(quantize(buffer.getZ(i)));
+            }
+        } else {
+            quantizedX = quantizedY = quantizedZ = Collections.emptyList();
+            x = new ArrayList<>(count);
+            y = new ArrayList<>(count);
+            z = new ArrayList<>(count);
+            for (int i = start; i < end; i++) {
+                x.add(buffer.getX(i));
+                y.add(buffer.getY(i));
+                z.add(buffer.getZ(i));
+            }
+        }
+
+        blocks.add(new PhoneAccelerationBlock(startTime, buffer.getTimeReceived(end - 1), count,
+                timeDeltas, quantizationStep, x, y, z, quantizedX, quantizedY, quantizedZ));
+        return end;
+    }
+
+    /** Quantize a value, clamping it to the 16-bit signed range. */
+    private int quantize(float value) {
+        int quantized = Math.round(value / quantizationStep);
+        if (quantized > Short.MAX_VALUE) {
+            return Short.MAX_VALUE;
+        } else if (quantized < Short.MIN_VALUE) {
+            return Short.MIN_VALUE;
+        } else {
+            return quantized;
+        }
+    }
+}
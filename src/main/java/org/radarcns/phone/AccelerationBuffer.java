@@ -0,0 +1,110 @@
+/*
+ * Copyright 2017 The Hyve
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ * http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+package org.radarcns.phone;
+
+/**
+ * Fixed-capacity buffer of acceleration samples, stored in primitive arrays. Adding a sample
+ * does not allocate any objects; records are only created when the buffer is drained.
+ * This class is not thread-safe.
+ */
+class AccelerationBuffer {
+    private final double[] time;
+    private final double[] timeReceived;
+    private final float[] x;
+    private final float[] y;
+    private final float[] z;
+    private final double maxAge;
+    private int size;
+
+    /**
+     * Buffer of acceleration samples.
+     * @param capacity maximum number of samples to hold.
+     * @param maxAge maximum time in seconds between the first and last sample received before
+     *               the buffer should be drained.
+     */
+    AccelerationBuffer(int capacity, double maxAge) {
+        if (capacity <= 0) {
+            throw new IllegalArgumentException("Buffer capacity must be positive");
+        }
+        this.time = new double[capacity];
+        this.timeReceived = new double[capacity];
+        this.x = new float[capacity];
+        this.y = new float[capacity];
+        this.z = new float[capacity];
+        this.maxAge = maxAge;
+        this.size = 0;
+    }
+
+    /**
+     * Add a sample to the buffer.
+     * @return whether the buffer should be drained
+     * @throws IllegalStateException if the buffer is already full.
+     */
+    boolean add(double time, double timeReceived, float x, float y, float z) {
+        if (size == this.time.length) {
+            throw new IllegalStateException("Acceleration buffer is full");
+        }
+        this.time[size] = time;
+        this.timeReceived[size] = timeReceived;
+        this.x[size] = x;
+        this.y[size] = y;
+        this.z[size] = z;
+        size++;
+        return size == this.time.length || timeReceived - this.timeReceived[0] >= maxAge;
+    }
+
+    int capacity() {
+        return time.length;
+    }
+
+    double getMaxAge() {
+        return maxAge;
+    }
+
+    int size() {
+        return size;
+    }
+
+    boolean isEmpty() {
+        return size == 0;
+    }
+
+    double getTime(int i) {
+        return time[i];
+    }
+
+    double getTimeReceived(int i) {
+        return timeReceived[i];
+    }
+
+    float getX(int i) {
+        return x[i];
+    }
+
+    float getY(int i) {
+        return y[i];
+    }
+
+    float getZ(int i) {
+        return z[i];
+    }
+
+    /** Remove all samples from the buffer. */
+    void clear() {
+        size = 0;
+    }
+}
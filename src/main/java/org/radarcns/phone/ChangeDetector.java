@@ -0,0 +1,79 @@
+/*
+ * Copyright 2017 The Hyve
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ * http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+package org.radarcns.phone;
+
+/**
+ * Detects changes in a scalar value, using an absolute and a relative deadband. A value is
+ * considered changed if it differs from the last sent value by more than both deadbands, or if
+ * no value was sent for longer than the maximum silence. Set a deadband to zero to only use the
+ * other. This class is not thread-safe.
+ */
+class ChangeDetector {
+    private final float absoluteDeadband;
+    private final float relativeDeadband;
+    private final double maxSilence;
+
+    private float lastValue;
+    private double lastTime;
+
+    /**
+     * Change detector.
+     * @param absoluteDeadband absolute difference that a value must exceed to be a change.
+     * @param relativeDeadband difference relative to the last value that a value must exceed to be
+     *                         a change.
+     * @param maxSilence maximum time in seconds after which a value is considered changed.
+     */
+    ChangeDetector(float absoluteDeadband, float relativeDeadband, double maxSilence) {
+        this.absoluteDeadband = absoluteDeadband;
+        this.relativeDeadband = relativeDeadband;
+        this.maxSilence = maxSilence;
+        this.lastValue = Float.NaN;
+        this.lastTime = Double.NaN;
+    }
+
+    /** Whether the value at given time in seconds is considered changed. */
+    boolean hasChanged(double time, float value) {
+        if (Double.isNaN(lastTime) || time - lastTime >= maxSilence) {
+            return true;
+        }
+        if (Float.isNaN(value) || Float.isNaN(lastValue)) {
+            return Float.isNaN(value) != Float.isNaN(lastValue);
+        }
+        float difference = Math.abs(value - lastValue);
+        return difference > absoluteDeadband
+                && difference > relativeDeadband * Math.abs(lastValue);
+    }
+
+    /** Register the value that was sent at given time in seconds. */
+    void update(double time, float value) {
+        lastValue = value;
+        lastTime = time;
+    }
+
+    /**
+     * Check whether a value has changed, and if so, register it as sent.
+     * @return whether the value has changed.
+     */
+    boolean updateIfChanged(double time, float value) {
+        if (hasChanged(time, value)) {
+            update(time, value);
+            return true;
+        } else {
+            return false;
+        }
+    }
+}
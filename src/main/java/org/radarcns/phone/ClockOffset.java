@@ -0,0 +1,81 @@
+/*
+ * Copyright 2017 The Hyve
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ * http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+package org.radarcns.phone;
+
+import android.os.SystemClock;
+
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+
+/**
+ * Converts elapsed realtime timestamps, as used by sensor events, to UTC. The offset between the
+ * two clocks is computed once and only updated when it is older than the synchronization
+ * interval, or when {@link #synchronize()} is called, so converting a timestamp does not read any
+ * clock. The change in offset at each synchronization is kept as the measured clock drift.
+ */
+class ClockOffset {
+    private static final Logger logger = LoggerFactory.getLogger(ClockOffset.class);
+
+    private final long syncInterval;
+    private volatile long offset;
+    private volatile long lastSync;
+    private volatile long drift;
+
+    /**
+     * Clock offset that is synchronized immediately.
+     * @param syncInterval interval in nanoseconds elapsed realtime after which the offset is
+     *                     computed again.
+     */
+    ClockOffset(long syncInterval) {
+        this.syncInterval = syncInterval;
+        this.drift = 0L;
+        this.lastSync = Long.MIN_VALUE;
+        synchronize();
+    }
+
+    /** Compute the offset between elapsed realtime and UTC again. */
+    synchronized void synchronize() {
+        long elapsed = SystemClock.elapsedRealtimeNanos();
+        long newOffset = System.currentTimeMillis() * 1_000_000L - elapsed;
+        if (lastSync != Long.MIN_VALUE) {
+            drift = newOffset - offset;
+            logger.debug("Synchronized sensor clock with a drift of {} ns", drift);
+        }
+        offset = newOffset;
+        lastSync = elapsed;
+    }
+
+    /**
+     * Convert an elapsed realtime timestamp to UTC.
+     * @param elapsedNanos elapsed realtime in nanoseconds, e.g. the timestamp of a sensor event.
+     * @return time in seconds UTC
+     */
+    double toUtcSeconds(long elapsedNanos) {
+        if (elapsedNanos - lastSync > syncInterval) {
+            synchronize();
+        }
+        return (elapsedNanos + offset) / 1_000_000_000d;
+    }
+
+    /**
+     * Change in offset between elapsed realtime and UTC measured at the last synchronization.
+     * @return drift in nanoseconds, or 0 if the offset was not synchronized again yet.
+     */
+    long getDrift() {
+        return drift;
+    }
+}
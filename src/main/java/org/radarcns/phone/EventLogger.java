@@ -0,0 +1,153 @@
+/*
+ * Copyright 2017 The Hyve
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ * http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+package org.radarcns.phone;
+
+import android.os.SystemClock;
+
+import org.slf4j.Logger;
+
+import java.util.Arrays;
+import java.util.concurrent.ArrayBlockingQueue;
+import java.util.concurrent.RejectedExecutionHandler;
+import java.util.concurrent.ThreadFactory;
+import java.util.concurrent.ThreadPoolExecutor;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicLong;
+
+/**
+ * Debug logging of individual events, safe to use in sensor and cursor loops. Call
+ * {@link #shouldLog()} before building any log arguments; it is false when debug logging is
+ * disabled, for events that are not sampled, and once the rate limit is reached. Messages are
+ * formatted and written on a shared background thread. If that thread cannot keep up, messages
+ * are dropped instead of blocking the caller. The number of skipped events is appended to the
+ * next message that is logged.
+ *
+ * Event logs must not contain personal data such as phone numbers.
+ */
+class EventLogger {
+    private static final long LEVEL_CHECK_INTERVAL = 10_000L; // milliseconds
+    private static final long RATE_INTERVAL = 60_000L; // milliseconds
+    private static final int QUEUE_SIZE = 256;
+
+    private static final AtomicLong droppedMessages = new AtomicLong();
+    private static final ThreadPoolExecutor writer;
+
+    static {
+        writer = new ThreadPoolExecutor(1, 1, 10L, TimeUnit.SECONDS,
+                new ArrayBlockingQueue<Runnable>(QUEUE_SIZE),
+                new ThreadFactory() {
+                    @Override
+                    public Thread newThread(Runnable r) {
+                        Thread thread = new Thread(r, "PhoneEventLog");
+                        thread.setDaemon(true);
+                        thread.setPriority(Thread.MIN_PRIORITY);
+                        return thread;
+                    }
+                },
+                new RejectedExecutionHandler() {
+                    @Override
+                    public void rejectedExecution(Runnable r, ThreadPoolExecutor executor) {
+                        droppedMessages.incrementAndGet();
+                    }
+                });
+        writer.allowCoreThreadTimeOut(true);
+    }
+
+    private final Logger logger;
+    private final int sampleInterval;
+    private final int maxPerMinute;
+
+    private boolean isEnabled;
+    private long nextLevelCheck;
+    private int sampleCount;
+    private long windowStart;
+    private int windowCount;
+    private int skipped;
+
+    /**
+     * Event logger.
+     * @param logger logger to write debug messages to.
+     * @param sampleInterval log only one in this many events.
+     * @param maxPerMinute maximum number of events to log per minute.
+     */
+    EventLogger(Logger logger, int sampleInterval, int maxPerMinute) {
+        if (sampleInterval < 1 || maxPerMinute < 1) {
+            throw new IllegalArgumentException("Sample interval and rate must be positive");
+        }
+        this.logger = logger;
+        this.sampleInterval = sampleInterval;
+        this.maxPerMinute = maxPerMinute;
+        this.nextLevelCheck = Long.MIN_VALUE;
+        this.windowStart = Long.MIN_VALUE;
+    }
+
+    /**
+     * Whether the current event should be logged. If so, call {@link #log(String, Object...)}
+     * exactly once.
+     */
+    synchronized boolean shouldLog() {
+        long now = SystemClock.elapsedRealtime();
+        if (now >= nextLevelCheck) {
+            isEnabled = logger.isDebugEnabled();
+            nextLevelCheck = now + LEVEL_CHECK_INTERVAL;
+        }
+        if (!isEnabled) {
+            return false;
+        }
+        if (++sampleCount < sampleInterval) {
+            skipped++;
+            return false;
+        }
+        sampleCount = 0;
+        if (windowStart == Long.MIN_VALUE || now >= windowStart + RATE_INTERVAL) {
+            windowStart = now;
+            windowCount = 0;
+        }
+        if (windowCount >= maxPerMinute) {
+            skipped++;
+            return false;
+        }
+        windowCount++;
+        return true;
+    }
+
+    /**
+     * Log an event on the background thread. Arguments are formatted on that thread, so they
+     * must not be modified afterwards.
+     */
+    void log(final String format, final Object... args) {
+        final int skippedEvents;
+        synchronized (this) {
+            skippedEvents = skipped;
+            skipped = 0;
+        }
+        writer.execute(new Runnable() {
+            @Override
+            public void run() {
+                long dropped = droppedMessages.getAndSet(0L);
+                if (skippedEvents == 0 && dropped == 0L) {
+                    logger.debug(format, args);
+                } else {
+                    Object[] allArgs = Arrays.copyOf(args, args.length + 2);
+                    allArgs[args.length] = skippedEvents;
+                    allArgs[args.length + 1] = dropped;
+                    logger.debug(format + " ({} events skipped, {} messages dropped)", allArgs);
+                }
+            }
+        });
+    }
+}
@@ -0,0 +1,141 @@
+/*
+ * Copyright 2017 The Hyve
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ * http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+package org.radarcns.phone;
+
+import java.util.concurrent.atomic.AtomicLong;
+import java.util.concurrent.atomic.AtomicLongArray;
+
+/**
+ * Histogram of latencies in microseconds with a fixed relative precision, similar to an HDR
+ * histogram. Values below {@code 2 * SUB_BUCKETS} are counted exactly. Larger values are counted
+ * in {@link #SUB_BUCKETS} linear bins per power of two, so any value is known within about 3%.
+ * Recording a value takes a few atomic increments and does not allocate or lock, so it may be
+ * called from any number of threads. Values above {@link #MAX_VALUE} are counted as MAX_VALUE.
+ */
+class LatencyHistogram {
+    private static final int SUB_BUCKET_BITS = 5;
+    private static final int SUB_BUCKETS = 1 << SUB_BUCKET_BITS;
+    private static final int MAX_VALUE_BITS = 40;
+    /** Maximum recorded value, about 12 days in microseconds. */
+    static final long MAX_VALUE = (1L << MAX_VALUE_BITS) - 1;
+    private static final int NUM_BINS = 2 * SUB_BUCKETS
+            + (MAX_VALUE_BITS - SUB_BUCKET_BITS - 1) * SUB_BUCKETS;
+
+    private final AtomicLongArray counts;
+    private final AtomicLong totalCount;
+    private final AtomicLong sum;
+    private final AtomicLong max;
+
+    LatencyHistogram() {
+        counts = new AtomicLongArray(NUM_BINS);
+        totalCount = new AtomicLong();
+        sum = new AtomicLong();
+        max = new AtomicLong();
+    }
+
+    /** Record a latency in microseconds. Negative values, e.g. from clock changes, count as 0. */
+    void record(long value) {
+        if (value < 0L) {
+            value = 0L;
+        } else if (value > MAX_VALUE) {
+            value = MAX_VALUE;
+        }
+        counts.incrementAndGet(binOf(value));
+        totalCount.incrementAndGet();
+        sum.addAndGet(value);
+        long currentMax = max.get();
+        while (value > currentMax && !max.compareAndSet(currentMax, value)) {
+            currentMax = max.get();
+        }
+    }
+
+    /**
+     * Record the latency between two times.
+     * @param eventTime time of the event in seconds.
+     * @param now current time in seconds, on the same clock.
+     */
+    void recordLatency(double eventTime, double now) {
+        record((long) ((now - eventTime) * 1_000_000d));
+    }
+
+    private static int binOf(long value) {
+        if (value < 2 * SUB_BUCKETS) {
+            return (int) value;
+        }
+        int shift = 63 - Long.numberOfLeadingZeros(value) - SUB_BUCKET_BITS;
+        int subBucket = (int) (value >>> shift) - SUB_BUCKETS;
+        return 2 * SUB_BUCKETS + (shift - 1) * SUB_BUCKETS + subBucket;
+    }
+
+    /** Largest value that falls in given bin. */
+    private static long highestValueOf(int bin) {
+        if (bin < 2 * SUB_BUCKETS) {
+            return bin;
+        }
+        int shift = (bin - 2 * SUB_BUCKETS) / SUB_BUCKETS + 1;
+        long subBucket = (bin - 2 * SUB_BUCKETS) % SUB_BUCKETS + SUB_BUCKETS;
+        return ((subBucket + 1) << shift) - 1;
+    }
+
+    long getCount() {
+        return totalCount.get();
+    }
+
+    long getMax() {
+        return max.get();
+    }
+
+    /** Mean latency in microseconds, or NaN if no values were recorded. */
+    double getMean() {
+        long count = totalCount.get();
+        return count > 0 ? sum.get() / (double) count : Double.NaN;
+    }
+
+    /**
+     * Value at given percentile, as the upper bound of the bin that contains it.
+     * @param percentile percentile between 0 and 100.
+     * @return latency in microseconds, or 0 if no values were recorded.
+     */
+    long getValueAtPercentile(double percentile) {
+        long count = totalCount.get();
+        if (count == 0L) {
+            return 0L;
+        }
+        long target = Math.max(1L, (long) Math.ceil(percentile / 100d * count));
+        long cumulative = 0L;
+        for (int i = 0; i < NUM_BINS; i++) {
+            cumulative += counts.get(i);
+            if (cumulative >= target) {
+                return Math.min(highestValueOf(i), max.get());
+            }
+        }
+        return max.get();
+    }
+
+    /**
+     * Remove all recorded values. Values that are recorded concurrently may be partially
+     * removed.
+     */
+    void reset() {
+        for (int i = 0; i < NUM_BINS; i++) {
+            counts.set(i, 0L);
+        }
+        totalCount.set(0L);
+        sum.set(0L);
+        max.set(0L);
+    }
+}
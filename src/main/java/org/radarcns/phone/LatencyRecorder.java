@@ -0,0 +1,107 @@
+/*
+ * Copyright 2017 The Hyve
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ * http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+package org.radarcns.phone;
+
+import org.radarcns.key.MeasurementKey;
+import org.radarcns.topic.AvroTopic;
+import org.slf4j.Logger;
+
+import java.io.PrintWriter;
+import java.util.Arrays;
+import java.util.LinkedHashMap;
+import java.util.Locale;
+import java.util.Map;
+
+/**
+ * Latency histograms of data sent by a device manager, per topic. Latencies are measured from the
+ * time of the measured event to the time that its record was added to the data cache. Managers
+ * should retrieve the histogram of each topic once and record to it directly.
+ */
+class LatencyRecorder {
+    private static final double[] PERCENTILES = {50d, 90d, 99d, 99.9d};
+
+    private final Map<String, LatencyHistogram> histograms = new LinkedHashMap<>();
+
+    /** Histogram of given topic, created if needed. */
+    synchronized LatencyHistogram get(AvroTopic<MeasurementKey, ?> topic) {
+        LatencyHistogram histogram = histograms.get(topic.getName());
+        if (histogram == null) {
+            histogram = new LatencyHistogram();
+            histograms.put(topic.getName(), histogram);
+        }
+        return histogram;
+    }
+
+    /** Print a table with the latency percentiles of each topic in milliseconds. */
+    synchronized void print(PrintWriter writer) {
+        writer.println(header());
+        for (Map.Entry<String, LatencyHistogram> entry : histograms.entrySet()) {
+            writer.println(format(entry.getKey(), entry.getValue()));
+        }
+        writer.flush();
+    }
+
+    /**
+     * Print the latencies for a service dump.
+     * @param args dump arguments. If they contain {@code reset}, latencies are removed after
+     *             printing.
+     */
+    synchronized void dump(PrintWriter writer, String[] args) {
+        writer.println("Send latencies:");
+        print(writer);
+        if (args != null && Arrays.asList(args).contains("reset")) {
+            reset();
+            writer.println("Send latencies reset.");
+            writer.flush();
+        }
+    }
+
+    /** Log the latency percentiles of each topic in milliseconds. */
+    synchronized void log(Logger logger) {
+        logger.info("Send latencies: {}", header());
+        for (Map.Entry<String, LatencyHistogram> entry : histograms.entrySet()) {
+            logger.info("Send latencies: {}", format(entry.getKey(), entry.getValue()));
+        }
+    }
+
+    /** Remove all recorded latencies. */
+    synchronized void reset() {
+        for (LatencyHistogram histogram : histograms.values()) {
+            histogram.reset();
+        }
+    }
+
+    private static String header() {
+        StringBuilder builder = new StringBuilder(String.format(Locale.US,
+                "%-40s %10s %10s", "topic", "count", "mean(ms)"));
+        for (double percentile : PERCENTILES) {
+            builder.append(String.format(Locale.US, " %10s", "p" + percentile + "(ms)"));
+        }
+        return builder.append(String.format(Locale.US, " %10s", "max(ms)")).toString();
+    }
+
+    private static String format(String topic, LatencyHistogram histogram) {
+        StringBuilder builder = new StringBuilder(String.format(Locale.US,
+                "%-40s %10d %10.1f", topic, histogram.getCount(), histogram.getMean() / 1000d));
+        for (double percentile : PERCENTILES) {
+            builder.append(String.format(Locale.US, " %10.1f",
+                    histogram.getValueAtPercentile(percentile) / 1000d));
+        }
+        return builder.append(String.format(Locale.US, " %10.1f", histogram.getMax() / 1000d))
+                .toString();
+    }
+}
@@ -0,0 +1,129 @@
+/*
+ * Copyright 2017 The Hyve
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ * http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+package org.radarcns.phone;
+
+/**
+ * Detects whether the device is lying still, based on the variance of the acceleration magnitude.
+ * The magnitude variance is computed over consecutive windows. The device is still once all
+ * windows for the still duration had a standard deviation below the threshold. Once still, any
+ * sample that deviates more than the motion threshold from the mean magnitude of the last still
+ * window, or any window with a higher standard deviation, marks the device as moving again.
+ * This class is not thread-safe.
+ */
+class MotionDetector {
+    private final double windowLength;
+    private final double stillDuration;
+    private final double stillThreshold;
+    private final double motionThreshold;
+
+    private boolean isStill;
+    private double stillSince;
+    private double windowStart;
+    private int count;
+    private double mean;
+    private double sumSquaredDiff;
+    private double stillMean;
+
+    /**
+     * Motion detector.
+     * @param windowLength length of a variance window in seconds.
+     * @param stillDuration time in seconds that the device must be still to be considered still.
+     * @param stillThreshold maximum standard deviation of the acceleration magnitude in g of
+     *                       a still window.
+     * @param motionThreshold maximum deviation in g of a single sample from the still magnitude.
+     */
+    MotionDetector(double windowLength, double stillDuration, double stillThreshold, double motionThreshold) {
+        this.windowLength = windowLength;
+        this.stillDuration = stillDuration;
+        this.stillThreshold = stillThreshold;
+        this.motionThreshold = motionThreshold;
+        setMoving();
+    }
+
+    /**
+     * Add an acceleration sample in g.
+     * @param time sample time in seconds
+     * @return whether the device changed from moving to still or from still to moving.
+     */
+    boolean add(double time, float x, float y, float z) {
+        double magnitude = Math.sqrt(x * x + y * y + z * z);
+
+        if (isStill && Math.abs(magnitude - stillMean) > motionThreshold) {
+            setMoving();
+            return true;
+        }
+
+        if (count > 0 && time >= windowStart + windowLength) {
+            boolean wasStill = isStill;
+            closeWindow();
+            if (isStill != wasStill) {
+                startWindow(time);
+                addToWindow(magnitude);
+                return true;
+            }
+        }
+        if (count == 0) {
+            startWindow(time);
+        }
+        addToWindow(magnitude);
+        return false;
+    }
+
+    private void startWindow(double time) {
+        windowStart = time;
+        count = 0;
+        mean = 0d;
+        sumSquaredDiff = 0d;
+    }
+
+    private void addToWindow(double magnitude) {
+        count++;
+        double delta = magnitude - mean;
+        mean += delta / count;
+        sumSquaredDiff += delta * (magnitude - mean);
+    }
+
+    private void closeWindow() {
+        double variance = count > 1 ? sumSquaredDiff / (count - 1) : 0d;
+        if (count > 1 && variance <= stillThreshold * stillThreshold) {
+            if (Double.isNaN(stillSince)) {
+                stillSince = windowStart;
+            }
+            stillMean = mean;
+            if (windowStart + windowLength - stillSince >= stillDuration) {
+                isStill = true;
+            }
+        } else if (count > 1) {
+            isStill = false;
+            stillSince = Double.NaN;
+        }
+        count = 0;
+    }
+
+    /** Whether the device is currently still. */
+    boolean isStill() {
+        return isStill;
+    }
+
+    /** Mark the device as moving, for example after a significant motion was detected. */
+    void setMoving() {
+        isStill = false;
+        stillSince = Double.NaN;
+        stillMean = Double.NaN;
+        count = 0;
+    }
+}
@@ -0,0 +1,241 @@
+/*
+ * Copyright 2017 The Hyve
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ * http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+package org.radarcns.phone;
+
+/**
+ * Complementary filter that estimates gravity and orientation from the accelerometer, gyroscope
+ * and magnetometer. Between accelerometer samples, the gravity and magnetic field estimates are
+ * rotated with the angular rate of the gyroscope. Each accelerometer and magnetometer sample
+ * then corrects the estimates with a low-pass filter. Without a gyroscope, the estimates are
+ * plain low-pass filtered sensor values, with a shorter time constant. Linear acceleration is
+ * the acceleration minus the gravity estimate. The filter uses constant memory and produces
+ * output at a fixed decimated interval. This class is not thread-safe.
+ */
+class OrientationFilter {
+    // low-pass time constants in seconds
+    private static final double TIME_CONSTANT = 0.2d;
+    private static final double GYROSCOPE_TIME_CONSTANT = 1d;
+    // maximum time between samples to integrate or filter them, in seconds
+    private static final double MAX_GAP = 1d;
+    // minimum sine of the angle between gravity and the magnetic field to compute the azimuth
+    private static final double MIN_AZIMUTH_SINE = 0.05d;
+
+    private final double interval;
+    private double nextOutputTime;
+
+    private boolean hasGravity;
+    private double gravityX;
+    private double gravityY;
+    private double gravityZ;
+    private double lastAccelerationTime;
+
+    private boolean hasMagneticField;
+    private double magneticX;
+    private double magneticY;
+    private double magneticZ;
+    private double lastMagneticTime;
+
+    private double lastRotationTime;
+
+    private float linearX;
+    private float linearY;
+    private float linearZ;
+    private float azimuth;
+    private float pitch;
+    private float roll;
+
+    /**
+     * Orientation filter.
+     * @param interval interval between outputs in seconds.
+     */
+    OrientationFilter(double interval) {
+        this.interval = interval;
+        this.nextOutputTime = Double.NaN;
+        this.hasGravity = false;
+        this.hasMagneticField = false;
+        this.lastAccelerationTime = Double.NaN;
+        this.lastMagneticTime = Double.NaN;
+        this.lastRotationTime = Double.NaN;
+    }
+
+    double getInterval() {
+        return interval;
+    }
+
+    /**
+     * Add an accelerometer sample.
+     * @param time time in seconds.
+     * @param x acceleration in the x-direction in g.
+     * @param y acceleration in the y-direction in g.
+     * @param z acceleration in the z-direction in g.
+     * @return whether a new output is due, with the values at given time.
+     */
+    boolean addAcceleration(double time, float x, float y, float z) {
+        if (hasGravity) {
+            double alpha = getSmoothing(time, lastAccelerationTime);
+            gravityX = alpha * gravityX + (1d - alpha) * x;
+            gravityY = alpha * gravityY + (1d - alpha) * y;
+            gravityZ = alpha * gravityZ + (1d - alpha) * z;
+        } else {
+            gravityX = x;
+            gravityY = y;
+            gravityZ = z;
+            hasGravity = true;
+        }
+        lastAccelerationTime = time;
+
+        if (!Double.isNaN(nextOutputTime) && time < nextOutputTime) {
+            return false;
+        }
+        // keep a regular output grid, unless output fell behind
+        nextOutputTime = Double.isNaN(nextOutputTime) || time - nextOutputTime >= interval
+                ? time + interval : nextOutputTime + interval;
+        linearX = (float) (x - gravityX);
+        linearY = (float) (y - gravityY);
+        linearZ = (float) (z - gravityZ);
+        computeOrientation();
+        return true;
+    }
+
+    /**
+     * Add a gyroscope sample.
+     * @param time time in seconds.
+     * @param x angular rate around the x-axis in rad/s.
+     * @param y angular rate around the y-axis in rad/s.
+     * @param z angular rate around the z-axis in rad/s.
+     */
+    void addRotationRate(double time, float x, float y, float z) {
+        double dt = time - lastRotationTime;
+        if (dt > 0d && dt < MAX_GAP) {
+            // vectors that are fixed in the world rotate opposite to the device: dv/dt = v x omega
+            if (hasGravity) {
+                double dx = (gravityY * z - gravityZ * y) * dt;
+                double dy = (gravityZ * x - gravityX * z) * dt;
+                double dz = (gravityX * y - gravityY * x) * dt;
+                gravityX += dx;
+                gravityY += dy;
+                gravityZ += dz;
+            }
+            if (hasMagneticField) {
+                double dx = (magneticY * z - magneticZ * y) * dt;
+                double dy = (magneticZ * x - magneticX * z) * dt;
+                double dz = (magneticX * y - magneticY * x) * dt;
+                magneticX += dx;
+                magneticY += dy;
+                magneticZ += dz;
+            }
+        }
+        lastRotationTime = time;
+    }
+
+    /**
+     * Add a magnetometer sample.
+     * @param time time in seconds.
+     * @param x magnetic field in the x-direction in uT.
+     * @param y magnetic field in the y-direction in uT.
+     * @param z magnetic field in the z-direction in uT.
+     */
+    void addMagneticField(double time, float x, float y, float z) {
+        if (hasMagneticField) {
+            double alpha = getSmoothing(time, lastMagneticTime);
+            magneticX = alpha * magneticX + (1d - alpha) * x;
+            magneticY = alpha * magneticY + (1d - alpha) * y;
+            magneticZ = alpha * magneticZ + (1d - alpha) * z;
+        } else {
+            magneticX = x;
+            magneticY = y;
+            magneticZ = z;
+            hasMagneticField = true;
+        }
+        lastMagneticTime = time;
+    }
+
+    /** Weight of the current estimate relative to a new sample. */
+    private double getSmoothing(double time, double lastTime) {
+        double dt = time - lastTime;
+        if (!(dt > 0d && dt < MAX_GAP)) {
+            // start over after a gap
+            return 0d;
+        }
+        double timeConstant = time - lastRotationTime < MAX_GAP
+                ? GYROSCOPE_TIME_CONSTANT : TIME_CONSTANT;
+        return timeConstant / (timeConstant + dt);
+    }
+
+    /** Orientation as computed by SensorManager.getRotationMatrix and getOrientation. */
+    private void computeOrientation() {
+        double gravityNorm = Math.sqrt(gravityX * gravityX + gravityY * gravityY
+                + gravityZ * gravityZ);
+        if (gravityNorm == 0d) {
+            azimuth = Float.NaN;
+            pitch = Float.NaN;
+            roll = Float.NaN;
+            return;
+        }
+        double ax = gravityX / gravityNorm;
+        double ay = gravityY / gravityNorm;
+        double az = gravityZ / gravityNorm;
+        pitch = (float) Math.asin(-ay);
+        roll = (float) Math.atan2(-ax, az);
+
+        azimuth = Float.NaN;
+        if (hasMagneticField) {
+            // east = magnetic field x gravity, north = gravity x east
+            double hx = magneticY * az - magneticZ * ay;
+            double hy = magneticZ * ax - magneticX * az;
+            double hz = magneticX * ay - magneticY * ax;
+            double hNorm = Math.sqrt(hx * hx + hy * hy + hz * hz);
+            double magneticNorm = Math.sqrt(magneticX * magneticX + magneticY * magneticY
+                    + magneticZ * magneticZ);
+            if (hNorm > MIN_AZIMUTH_SINE * magneticNorm) {
+                hx /= hNorm;
+                hy /= hNorm;
+                hz /= hNorm;
+                double my = az * hx - ax * hz;
+                azimuth = (float) Math.atan2(hy, my);
+            }
+        }
+    }
+
+    /** Linear acceleration in the x-direction in g, at the last output. */
+    float getLinearX() {
+        return linearX;
+    }
+
+    float getLinearY() {
+        return linearY;
+    }
+
+    float getLinearZ() {
+        return linearZ;
+    }
+
+    /** Rotation around the z-axis from magnetic north in radians, or NaN if unknown. */
+    float getAzimuth() {
+        return azimuth;
+    }
+
+    /** Rotation around the x-axis in radians. */
+    float getPitch() {
+        return pitch;
+    }
+
+    /** Rotation around the y-axis in radians. */
+    float getRoll() {
+        return roll;
+    }
+}
@@ -16,7 +16,11 @@
 
 package org.radarcns.phone;
 
+import android.app.PendingIntent;
+import android.content.BroadcastReceiver;
 import android.content.Context;
+import android.content.Intent;
+import android.content.IntentFilter;
 import android.location.Location;
 import android.location.LocationListener;
 import android.location.LocationManager;
@@ -37,23 +41,27 @@ import org.slf4j.Logger;
 import org.slf4j.LoggerFactory;
 
 import java.io.IOException;
-import java.math.BigDecimal;
 import java.util.HashMap;
 import java.util.Map;
 import java.util.Set;
 
 class PhoneLocationManager extends AbstractDeviceManager<PhoneLocationService, BaseDeviceState> implements LocationListener {
     private static final Logger logger = LoggerFactory.getLogger(PhoneLocationManager.class);
+    private static final EventLogger eventLogger = new EventLogger(logger, 1, 10);
 
     // storage with keys
-    private static final PersistentStorage storage = new PersistentStorage(PhoneLocationManager.class);
+    private static final WriteBehindStorage storage = new WriteBehindStorage(
+            new PersistentStorage(PhoneLocationManager.class));
     private static final String LATITUDE_REFERENCE = "latitude.reference";
     private static final String LONGITUDE_REFERENCE = "longitude.reference";
     private static final String ALTITUDE_REFERENCE = "altitude.reference";
 
+    // broadcast when leaving the area around a stationary location
+    private static final String ACTION_PROXIMITY = "org.radarcns.phone.PhoneLocationManager.PROXIMITY";
+
     // update intervals
-    private static final long LOCATION_GPS_INTERVAL_DEFAULT = 60*60; // seconds
-    private static final long LOCATION_NETWORK_INTERVAL_DEFAULT = 10*60; // seconds
+    static final long LOCATION_GPS_INTERVAL_DEFAULT = 60*60; // seconds
+    static final long LOCATION_NETWORK_INTERVAL_DEFAULT = 10*60; // seconds
 
     private static final Map<String, LocationProvider> PROVIDER_TYPES = new HashMap<>();
 
@@ -63,31 +71,70 @@ class PhoneLocationManager extends AbstractDeviceManager<PhoneLocationService, B
     }
 
     private final DataCache<MeasurementKey, PhoneRelativeLocation> locationTable;
+    private final LatencyRecorder sendLatencies;
+    private final LatencyHistogram locationLatency;
     private final LocationManager locationManager;
-    private BigDecimal latitudeReference;
-    private BigDecimal longitudeReference;
+    private double latitudeReference = Double.NaN;
+    private double longitudeReference = Double.NaN;
     private double altitudeReference = Double.NaN;
     private final HandlerThread handlerThread;
     private Handler handler;
+    private long gpsInterval;
+    private long networkInterval;
+    private final SamplingGovernor samplingGovernor;
+    private BroadcastReceiver batteryReceiver;
+    private final StationaryDetector stationaryDetector;
+    private BroadcastReceiver proximityReceiver;
+    private PendingIntent proximityIntent;
 
     public PhoneLocationManager(PhoneLocationService context, TableDataHandler dataHandler, String groupId, String sourceId) {
         super(context, new BaseDeviceState(), dataHandler, groupId, sourceId);
         this.locationTable = dataHandler.getCache(PhoneLocationTopics.getInstance().getRelativeLocationTopic());
+        this.sendLatencies = new LatencyRecorder();
+        this.locationLatency = sendLatencies.get(PhoneLocationTopics.getInstance().getRelativeLocationTopic());
 
         locationManager = (LocationManager) getService().getSystemService(Context.LOCATION_SERVICE);
         this.handlerThread = new HandlerThread("PhoneLocation", Process.THREAD_PRIORITY_BACKGROUND);
+        this.gpsInterval = LOCATION_GPS_INTERVAL_DEFAULT;
+        this.networkInterval = LOCATION_NETWORK_INTERVAL_DEFAULT;
+        this.samplingGovernor = new SamplingGovernor(SamplingGovernor.START_LEVEL_DEFAULT);
+        this.stationaryDetector = new StationaryDetector(
+                StationaryDetector.DWELL_TIME_DEFAULT, StationaryDetector.RADIUS_DEFAULT);
 
         setName(android.os.Build.MODEL);
         updateStatus(DeviceStatusListener.Status.READY);
     }
 
     @Override
-    public void start(@NonNull Set<String> set) {
+    public synchronized void start(@NonNull Set<String> set) {
         this.handlerThread.start();
         this.handler = new Handler(this.handlerThread.getLooper());
 
+        // Battery and power-save mode
+        batteryReceiver = new BroadcastReceiver() {
+            @Override
+            public void onReceive(Context context, Intent intent) {
+                updateSamplingGovernor(intent);
+            }
+        };
+        samplingGovernor.update(getService(), getService().registerReceiver(
+                batteryReceiver, SamplingGovernor.createIntentFilter(), null, handler));
+        samplingGovernor.updatePowerSaveMode(getService());
+
+        // Leaving a stationary location
+        proximityReceiver = new BroadcastReceiver() {
+            @Override
+            public void onReceive(Context context, Intent intent) {
+                onProximityAlert(intent);
+            }
+        };
+        getService().registerReceiver(proximityReceiver, new IntentFilter(ACTION_PROXIMITY), null, handler);
+        proximityIntent = PendingIntent.getBroadcast(getService(), 0,
+                new Intent(ACTION_PROXIMITY).setPackage(getService().getPackageName()),
+                PendingIntent.FLAG_UPDATE_CURRENT);
+
         // Location
-        setLocationUpdateRate(LOCATION_GPS_INTERVAL_DEFAULT, LOCATION_NETWORK_INTERVAL_DEFAULT);
+        requestLocationUpdates();
         updateStatus(DeviceStatusListener.Status.CONNECTED);
     }
 
@@ -127,9 +174,14 @@ class PhoneLocationManager extends AbstractDeviceManager<PhoneLocationService, B
                 latitude, longitude,
                 altitude, accuracy, speed, bearing);
         send(locationTable, value);
+        locationLatency.recordLatency(eventTimestamp, System.currentTimeMillis() / 1000d);
+
+        if (eventLogger.shouldLog()) {
+            eventLogger.log("Location: {} {} {} {} {} {} {} {} {}", provider, eventTimestamp,
+                    latitude, longitude, accuracy, altitude, speed, bearing, timestamp);
+        }
 
-        logger.info("Location: {} {} {} {} {} {} {} {} {}", provider, eventTimestamp, latitude,
-                longitude, accuracy, altitude, speed, bearing, timestamp);
+        updateStationary(location);
     }
 
     public void onStatusChanged(String provider, int status, Bundle extras) {}
@@ -138,14 +190,122 @@ class PhoneLocationManager extends AbstractDeviceManager<PhoneLocationService, B
 
     public void onProviderDisabled(String provider) {}
 
+    /**
+     * Set the period of location updates. If the manager was already started, location updates
+     * are requested again with the new periods.
+     * @param periodGPS GPS update period in seconds
+     * @param periodNetwork network location update period in seconds
+     */
     public final synchronized void setLocationUpdateRate(final long periodGPS, final long periodNetwork) {
+        if (periodGPS == gpsInterval && periodNetwork == networkInterval) {
+            return;
+        }
+        gpsInterval = periodGPS;
+        networkInterval = periodNetwork;
+        if (handler != null) {
+            requestLocationUpdates();
+        }
+    }
+
+    /**
+     * Increase location update periods as the battery drains. Below given battery level, update
+     * periods are doubled, and they are doubled again at half and at a quarter of that level. In
+     * power-save mode, periods are at least quadrupled. While charging, the configured periods
+     * are used.
+     * @param level battery level as a fraction of a full battery, or 0 to always use the
+     *              configured update periods.
+     */
+    public synchronized void setBatterySavingLevel(float level) {
+        if (level == samplingGovernor.getStartLevel()) {
+            return;
+        }
+        if (samplingGovernor.setStartLevel(level)) {
+            onSamplingTierChanged();
+        }
+    }
+
+    /**
+     * Suspend GPS and network updates while the phone is stationary. Once location fixes have
+     * stayed within given radius for given dwell time, the updates are replaced by passive location
+     * updates and a proximity alert around the stationary location. The updates resume when a fix
+     * is outside the radius or when the proximity alert reports leaving it.
+     * @param dwellTime dwell time in seconds, or 0 to always use GPS updates.
+     * @param radius radius in meters.
+     */
+    public synchronized void setStationaryDetection(long dwellTime, float radius) {
+        if (dwellTime == stationaryDetector.getDwellTime() && radius == stationaryDetector.getRadius()) {
+            return;
+        }
+        if (stationaryDetector.configure(dwellTime, radius)) {
+            onStationaryChanged();
+        }
+    }
+
+    private synchronized void updateStationary(Location location) {
+        if (stationaryDetector.update(location, System.currentTimeMillis())) {
+            onStationaryChanged();
+        }
+    }
+
+    private synchronized void onProximityAlert(Intent intent) {
+        // an alert is also sent when entering, including right after adding it
+        if (intent.getBooleanExtra(LocationManager.KEY_PROXIMITY_ENTERING, true)) {
+            return;
+        }
+        if (stationaryDetector.reset()) {
+            onStationaryChanged();
+        }
+    }
+
+    private void onStationaryChanged() {
+        if (stationaryDetector.isStationary()) {
+            logger.info("Location stationary: location updates suspended");
+        } else {
+            logger.info("Location moving: location updates resumed");
+        }
+        if (handler != null) {
+            requestLocationUpdates();
+        }
+    }
+
+    private synchronized void updateSamplingGovernor(Intent intent) {
+        if (samplingGovernor.update(getService(), intent)) {
+            onSamplingTierChanged();
+        }
+    }
+
+    private void onSamplingTierChanged() {
+        logger.info("Battery sampling tier {}: location update periods multiplied by {}",
+                samplingGovernor.getTier(), samplingGovernor.getFactor());
+        if (handler != null) {
+            requestLocationUpdates();
+        }
+    }
+
+    private void requestLocationUpdates() {
+        final long periodGPS = gpsInterval * samplingGovernor.getFactor();
+        final long periodNetwork = networkInterval * samplingGovernor.getFactor();
+        final boolean isStationary = stationaryDetector.isStationary();
+        final double stationaryLatitude = stationaryDetector.getAnchorLatitude();
+        final double stationaryLongitude = stationaryDetector.getAnchorLongitude();
+        final float stationaryRadius = stationaryDetector.getRadius();
+        final PendingIntent alertIntent = proximityIntent;
         handler.post(new Runnable() {
              @Override
              public void run() {
                  // Remove updates, if any
                  locationManager.removeUpdates(PhoneLocationManager.this);
+                 locationManager.removeProximityAlert(alertIntent);
 
                  // Initialize with last known and start listening
+                 if (isStationary) {
+                     // Only receive fixes requested by others, until leaving the stationary area
+                     locationManager.requestLocationUpdates(LocationManager.PASSIVE_PROVIDER, periodNetwork * 1000, 0, PhoneLocationManager.this);
+                     locationManager.addProximityAlert(stationaryLatitude, stationaryLongitude, stationaryRadius, -1, alertIntent);
+                     logger.info("Location listeners suspended while stationary, passive listener set to a period of {}", periodNetwork);
+                     return;
+                 }
+
                  if (locationManager.isProviderEnabled(LocationManager.GPS_PROVIDER)) {
                      onLocationChanged(locationManager.getLastKnownLocation(LocationManager.GPS_PROVIDER));
                      locationManager.requestLocationUpdates(LocationManager.GPS_PROVIDER, periodGPS * 1000, 0, PhoneLocationManager.this);
@@ -169,24 +329,20 @@ class PhoneLocationManager extends AbstractDeviceManager<PhoneLocationService, B
         if (Double.isNaN(absoluteLatitude)) {
             return Double.NaN;
         }
-        BigDecimal latitude = BigDecimal.valueOf(absoluteLatitude);
-        if (latitudeReference == null) {
-            latitudeReference = new BigDecimal(
-                    storage.getOrSet(LATITUDE_REFERENCE, latitude.toString()));
+        if (Double.isNaN(latitudeReference)) {
+            latitudeReference = loadReference(LATITUDE_REFERENCE, absoluteLatitude);
         }
-        return latitude.subtract(latitudeReference).doubleValue();
+        return RelativeCoordinates.relative(absoluteLatitude, latitudeReference);
     }
 
     private double getRelativeLongitude(double absoluteLongitude) throws IOException {
         if (Double.isNaN(absoluteLongitude)) {
             return Double.NaN;
         }
-        BigDecimal longitude = BigDecimal.valueOf(absoluteLongitude);
-        if (longitudeReference == null) {
-            longitudeReference = new BigDecimal(
-                    storage.getOrSet(LONGITUDE_REFERENCE, longitude.toString()));
+        if (Double.isNaN(longitudeReference)) {
+            longitudeReference = loadReference(LONGITUDE_REFERENCE, absoluteLongitude);
         }
-        return longitude.subtract(longitudeReference).doubleValue();
+        return RelativeCoordinates.relative(absoluteLongitude, longitudeReference);
     }
 
     private float getRelativeAltitude(double absoluteAltitude) throws IOException {
@@ -194,23 +350,56 @@ class PhoneLocationManager extends AbstractDeviceManager<PhoneLocationService, B
             return Float.NaN;
         }
         if (Double.isNaN(altitudeReference)) {
-            altitudeReference = Double.parseDouble(storage.getOrSet(ALTITUDE_REFERENCE, Double.toString(absoluteAltitude)));
+            altitudeReference = loadReference(ALTITUDE_REFERENCE, absoluteAltitude);
+        }
+        return (float) RelativeCoordinates.relative(absoluteAltitude, altitudeReference);
+    }
+
+    /** Load a stored reference, or store given value as a new reference. */
+    private static double loadReference(String key, double value) throws IOException {
+        String reference = storage.get(key);
+        if (reference != null) {
+            return RelativeCoordinates.parseReference(reference);
         }
-        return (float)(absoluteAltitude - altitudeReference);
+        storage.put(key, RelativeCoordinates.formatReference(value));
+        // relative locations that are sent depend on the reference, so store it right away
+        storage.flush();
+        return value;
+    }
+
+    /**
+     * Latencies from the time of each location fix to the time that its record was added to the
+     * data cache.
+     */
+    LatencyRecorder getSendLatencies() {
+        return sendLatencies;
     }
 
     public void close() throws IOException {
-        if (handler != null) {
-            handler.post(new Runnable() {
-                @Override
-                public void run() {
-                    locationManager.removeUpdates(PhoneLocationManager.this);
-                }
-            });
-            handler = null;
-            handlerThread.quitSafely();
+        synchronized (this) {
+            if (handler != null) {
+                getService().unregisterReceiver(batteryReceiver);
+                getService().unregisterReceiver(proximityReceiver);
+                final PendingIntent alertIntent = proximityIntent;
+                handler.post(new Runnable() {
+                    @Override
+                    public void run() {
+                        locationManager.removeUpdates(PhoneLocationManager.this);
+                        locationManager.removeProximityAlert(alertIntent);
+                        alertIntent.cancel();
+                    }
+                });
+                handler = null;
+                handlerThread.quitSafely();
+            }
         }
 
+        try {
+            storage.flush();
+        } catch (IOException ex) {
+            logger.error("Failed to store location references", ex);
+        }
+        sendLatencies.log(logger);
         super.close();
     }
 }
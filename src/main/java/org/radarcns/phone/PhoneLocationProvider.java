@@ -16,8 +16,10 @@
 
 package org.radarcns.phone;
 
+import android.os.Bundle;
 import android.os.Parcelable;
 
+import org.radarcns.android.RadarConfiguration;
 import org.radarcns.android.device.BaseDeviceState;
 import org.radarcns.android.device.DeviceServiceProvider;
 
@@ -27,8 +29,18 @@ import java.util.List;
 import static android.Manifest.permission.ACCESS_COARSE_LOCATION;
 import static android.Manifest.permission.ACCESS_FINE_LOCATION;
 import static android.Manifest.permission.WRITE_EXTERNAL_STORAGE;
+import static org.radarcns.phone.PhoneSensorProvider.PHONE_BATTERY_SAVING_LEVEL_KEY;
 
 public class PhoneLocationProvider extends DeviceServiceProvider<BaseDeviceState> {
+    /** Period of GPS location updates in seconds. */
+    public static final String PHONE_LOCATION_GPS_INTERVAL_KEY = "phone_location_gps_interval";
+    /** Period of network location updates in seconds. */
+    public static final String PHONE_LOCATION_NETWORK_INTERVAL_KEY = "phone_location_network_interval";
+    /** Time in seconds that location fixes stay close together before location updates are suspended, 0 to disable. */
+    public static final String PHONE_LOCATION_STATIONARY_TIME_KEY = "phone_location_stationary_time";
+    /** Radius in meters within which the phone is considered stationary. */
+    public static final String PHONE_LOCATION_STATIONARY_RADIUS_KEY = "phone_location_stationary_radius";
+
     @Override
     public Class<?> getServiceClass() {
         return PhoneLocationService.class;
@@ -44,6 +56,22 @@ public class PhoneLocationProvider extends DeviceServiceProvider<BaseDeviceState
         return getActivity().getString(R.string.phoneLocationServiceDisplayName);
     }
 
+    @Override
+    protected void configure(Bundle bundle) {
+        super.configure(bundle);
+        RadarConfiguration config = getConfig();
+        bundle.putLong(PHONE_LOCATION_GPS_INTERVAL_KEY, config.getLong(
+                PHONE_LOCATION_GPS_INTERVAL_KEY, PhoneLocationManager.LOCATION_GPS_INTERVAL_DEFAULT));
+        bundle.putLong(PHONE_LOCATION_NETWORK_INTERVAL_KEY, config.getLong(
+                PHONE_LOCATION_NETWORK_INTERVAL_KEY, PhoneLocationManager.LOCATION_NETWORK_INTERVAL_DEFAULT));
+        bundle.putFloat(PHONE_BATTERY_SAVING_LEVEL_KEY, config.getFloat(
+                PHONE_BATTERY_SAVING_LEVEL_KEY, SamplingGovernor.START_LEVEL_DEFAULT));
+        bundle.putLong(PHONE_LOCATION_STATIONARY_TIME_KEY, config.getLong(
+                PHONE_LOCATION_STATIONARY_TIME_KEY, StationaryDetector.DWELL_TIME_DEFAULT));
+        bundle.putFloat(PHONE_LOCATION_STATIONARY_RADIUS_KEY, config.getFloat(
+                PHONE_LOCATION_STATIONARY_RADIUS_KEY, StationaryDetector.RADIUS_DEFAULT));
+    }
+
     @Override
     public List<String> needsPermissions() {
         return Arrays.asList(ACCESS_COARSE_LOCATION, ACCESS_FINE_LOCATION, WRITE_EXTERNAL_STORAGE);
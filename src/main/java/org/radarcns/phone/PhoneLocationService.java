@@ -16,20 +16,64 @@
 
 package org.radarcns.phone;
 
+import android.os.Bundle;
+
 import org.radarcns.android.device.BaseDeviceState;
 import org.radarcns.android.device.DeviceManager;
 import org.radarcns.android.device.DeviceService;
 import org.radarcns.android.device.DeviceStatusListener;
 import org.radarcns.android.util.PersistentStorage;
 
+import java.io.FileDescriptor;
+import java.io.PrintWriter;
+
 import static org.radarcns.android.RadarConfiguration.SOURCE_ID_KEY;
+import static org.radarcns.phone.PhoneLocationManager.LOCATION_GPS_INTERVAL_DEFAULT;
+import static org.radarcns.phone.PhoneLocationManager.LOCATION_NETWORK_INTERVAL_DEFAULT;
+import static org.radarcns.phone.PhoneLocationProvider.PHONE_LOCATION_GPS_INTERVAL_KEY;
+import static org.radarcns.phone.PhoneLocationProvider.PHONE_LOCATION_NETWORK_INTERVAL_KEY;
+import static org.radarcns.phone.PhoneLocationProvider.PHONE_LOCATION_STATIONARY_RADIUS_KEY;
+import static org.radarcns.phone.PhoneLocationProvider.PHONE_LOCATION_STATIONARY_TIME_KEY;
+import static org.radarcns.phone.PhoneSensorProvider.PHONE_BATTERY_SAVING_LEVEL_KEY;
 
 public class PhoneLocationService extends DeviceService {
     private String sourceId;
+    private long gpsInterval = LOCATION_GPS_INTERVAL_DEFAULT;
+    private long networkInterval = LOCATION_NETWORK_INTERVAL_DEFAULT;
+    private float batterySavingLevel = SamplingGovernor.START_LEVEL_DEFAULT;
+    private long stationaryTime = StationaryDetector.DWELL_TIME_DEFAULT;
+    private float stationaryRadius = StationaryDetector.RADIUS_DEFAULT;
 
     @Override
     protected DeviceManager createDeviceManager() {
-        return new PhoneLocationManager(this, getDataHandler(), getUserId(), getSourceId());
+        PhoneLocationManager manager = new PhoneLocationManager(this, getDataHandler(), getUserId(), getSourceId());
+        configureManager(manager);
+        return manager;
+    }
+
+    @Override
+    protected void onInvocation(Bundle bundle) {
+        super.onInvocation(bundle);
+        gpsInterval = bundle.getLong(PHONE_LOCATION_GPS_INTERVAL_KEY, LOCATION_GPS_INTERVAL_DEFAULT);
+        networkInterval = bundle.getLong(PHONE_LOCATION_NETWORK_INTERVAL_KEY, LOCATION_NETWORK_INTERVAL_DEFAULT);
+        batterySavingLevel = bundle.getFloat(
+                PHONE_BATTERY_SAVING_LEVEL_KEY, SamplingGovernor.START_LEVEL_DEFAULT);
+        stationaryTime = bundle.getLong(
+                PHONE_LOCATION_STATIONARY_TIME_KEY, StationaryDetector.DWELL_TIME_DEFAULT);
+        stationaryRadius = bundle.getFloat(
+                PHONE_LOCATION_STATIONARY_RADIUS_KEY, StationaryDetector.RADIUS_DEFAULT);
+
+        // apply the new configuration to a running manager
+        PhoneLocationManager manager = (PhoneLocationManager) getDeviceManager();
+        if (manager != null) {
+            configureManager(manager);
+        }
+    }
+
+    private void configureManager(PhoneLocationManager manager) {
+        manager.setLocationUpdateRate(gpsInterval, networkInterval);
+        manager.setBatterySavingLevel(batterySavingLevel);
+        manager.setStationaryDetection(stationaryTime, stationaryRadius);
     }
 
     @Override
@@ -39,6 +83,20 @@ public class PhoneLocationService extends DeviceService {
         return state;
     }
 
+    /**
+     * Print the send latencies per topic, with
+     * {@code adb shell dumpsys activity service org.radarcns.phone.PhoneLocationService}. Add the
+     * argument {@code reset} to remove the latencies after printing them.
+     */
+    @Override
+    protected void dump(FileDescriptor fd, PrintWriter writer, String[] args) {
+        super.dump(fd, writer, args);
+        PhoneLocationManager manager = (PhoneLocationManager) getDeviceManager();
+        if (manager != null) {
+            manager.getSendLatencies().dump(writer, args);
+        }
+    }
+
     @Override
     protected PhoneLocationTopics getTopics() {
         return PhoneLocationTopics.getInstance();
@@ -23,6 +23,7 @@ import android.support.annotation.NonNull;
 import android.util.Base64;
 import android.util.SparseArray;
 
+import org.apache.avro.specific.SpecificRecord;
 import org.radarcns.android.data.DataCache;
 import org.radarcns.android.data.TableDataHandler;
 import org.radarcns.android.device.AbstractDeviceManager;
@@ -39,6 +40,8 @@ import java.nio.ByteBuffer;
 import java.security.InvalidKeyException;
 import java.security.NoSuchAlgorithmException;
 import java.security.SecureRandom;
+import java.util.ArrayList;
+import java.util.List;
 import java.util.Set;
 import java.util.concurrent.Executors;
 import java.util.concurrent.ScheduledExecutorService;
@@ -50,14 +53,18 @@ import javax.crypto.spec.SecretKeySpec;
 
 public class PhoneLogManager extends AbstractDeviceManager<PhoneLogService, BaseDeviceState> {
     private static final Logger logger = LoggerFactory.getLogger(PhoneLogManager.class);
-    private static final PersistentStorage storage = new PersistentStorage(PhoneSensorManager.class);
+    private static final EventLogger eventLogger = new EventLogger(logger, 1, 10);
+    private static final WriteBehindStorage storage = new WriteBehindStorage(
+            new PersistentStorage(PhoneSensorManager.class));
 
     private static final SparseArray<PhoneCallType> CALL_TYPES = new SparseArray<>(4);
     private static final SparseArray<PhoneSmsType> SMS_TYPES = new SparseArray<>(7);
     private static final String LAST_SMS_KEY = "last.sms.time";
     private static final String LAST_CALL_KEY = "last.call.time";
     private static final String HASH_KEY = "hash.key";
-    private static final long CALL_SMS_LOG_INTERVAL_DEFAULT = 24*60*60; // seconds
+    static final long CALL_SMS_LOG_INTERVAL_DEFAULT = 24*60*60; // seconds
+    // number of log entries to read before sending them to the data cache
+    private static final int LOG_BATCH_SIZE = 100;
 
     static {
         CALL_TYPES.append(CallLog.Calls.INCOMING_TYPE, PhoneCallType.INCOMING);
@@ -78,19 +85,26 @@ public class PhoneLogManager extends AbstractDeviceManager<PhoneLogService, Base
 
     private final DataCache<MeasurementKey, PhoneCall> callTable;
     private final DataCache<MeasurementKey, PhoneSms> smsTable;
+    private final LatencyRecorder sendLatencies;
+    private final LatencyHistogram callLatency;
+    private final LatencyHistogram smsLatency;
     private final Mac sha256;
     private final byte[] hashBuffer = new byte[4];
 
     private ScheduledFuture<?> callLogReadFuture;
     private ScheduledFuture<?> smsLogReadFuture;
     private final ScheduledExecutorService executor;
-
-
+    private long callLogInterval;
+    private long smsLogInterval;
+    private boolean isStarted;
 
     public PhoneLogManager(PhoneLogService phoneLogService, TableDataHandler dataHandler, String userId, String sourceId) {
         super(phoneLogService, new BaseDeviceState(), dataHandler, userId, sourceId);
         callTable = getCache(phoneLogService.getTopics().getCallTopic());
         smsTable = getCache(phoneLogService.getTopics().getSmsTopic());
+        sendLatencies = new LatencyRecorder();
+        callLatency = sendLatencies.get(phoneLogService.getTopics().getCallTopic());
+        smsLatency = sendLatencies.get(phoneLogService.getTopics().getSmsTopic());
 
         try {
             this.sha256 = Mac.getInstance("HmacSHA256");
@@ -107,17 +121,52 @@ public class PhoneLogManager extends AbstractDeviceManager<PhoneLogService, Base
 
         // Scheduler TODO: run executor with existing thread pool/factory
         executor = Executors.newSingleThreadScheduledExecutor();
+        callLogInterval = CALL_SMS_LOG_INTERVAL_DEFAULT;
+        smsLogInterval = CALL_SMS_LOG_INTERVAL_DEFAULT;
+        isStarted = false;
     }
 
-    public void start(@NonNull Set<String> acceptableIds) {
+    public synchronized void start(@NonNull Set<String> acceptableIds) {
+        isStarted = true;
+
         // Calls and sms, in and outgoing
-        setCallLogUpdateRate(CALL_SMS_LOG_INTERVAL_DEFAULT);
-        setSmsLogUpdateRate(CALL_SMS_LOG_INTERVAL_DEFAULT);
+        scheduleCallLogReader(callLogInterval);
+        scheduleSmsLogReader(smsLogInterval);
 
         updateStatus(DeviceStatusListener.Status.CONNECTED);
     }
 
-    public final synchronized void setCallLogUpdateRate(final long period) {
+    /**
+     * Set the period of reading the call log. If the manager was already started, the call log
+     * reader is rescheduled with the new period.
+     * @param period period in seconds
+     */
+    public final synchronized void setCallLogUpdateRate(long period) {
+        if (period == callLogInterval) {
+            return;
+        }
+        callLogInterval = period;
+        if (isStarted) {
+            scheduleCallLogReader(period);
+        }
+    }
+
+    /**
+     * Set the period of reading the SMS log. If the manager was already started, the SMS log
+     * reader is rescheduled with the new period.
+     * @param period period in seconds
+     */
+    public final synchronized void setSmsLogUpdateRate(long period) {
+        if (period == smsLogInterval) {
+            return;
+        }
+        smsLogInterval = period;
+        if (isStarted) {
+            scheduleSmsLogReader(period);
+        }
+    }
+
+    private void scheduleCallLogReader(final long period) {
         if (callLogReadFuture != null) {
             callLogReadFuture.cancel(false);
         }
@@ -134,30 +183,53 @@ public class PhoneLogManager extends AbstractDeviceManager<PhoneLogService, Base
                         lastDateRead = threshold;
                     }
 
+                    long lastDateSent = lastDateRead;
+                    List<PhoneCall> batch = new ArrayList<>(LOG_BATCH_SIZE);
                     try (Cursor c = getService().getContentResolver().query(CallLog.Calls.CONTENT_URI, null, CallLog.Calls.DATE + " > " + lastDateRead, null, CallLog.Calls.DATE + " ASC")) {
                         if (c == null) {
                             return;
                         }
 
-                        while (c.moveToNext()) {
-                            long date = c.getLong(c.getColumnIndex(CallLog.Calls.DATE));
+                        int dateColumn = c.getColumnIndex(CallLog.Calls.DATE);
+                        int numberColumn = c.getColumnIndex(CallLog.Calls.NUMBER);
+                        int durationColumn = c.getColumnIndex(CallLog.Calls.DURATION);
+                        int typeColumn = c.getColumnIndex(CallLog.Calls.TYPE);
 
-                            processCall(date / 1000d,
-                                    c.getString(c.getColumnIndex(CallLog.Calls.NUMBER)),
-                                    c.getFloat(c.getColumnIndex(CallLog.Calls.DURATION)),
-                                    c.getInt(c.getColumnIndex(CallLog.Calls.TYPE)));
+                        while (c.moveToNext()) {
+                            long date = c.getLong(dateColumn);
+
+                            try {
+                                batch.add(createCall(date / 1000d, c.getString(numberColumn),
+                                        c.getFloat(durationColumn), c.getInt(typeColumn)));
+                            } catch (RuntimeException ex) {
+                                // skip the entry, otherwise it would fail again in every run
+                                logger.warn("Call log: skipping call at {} that cannot be processed: {}",
+                                        date, ex.toString());
+                            }
                             lastDateRead = date;
+
+                            if (batch.size() == LOG_BATCH_SIZE) {
+                                sendCalls(batch);
+                                lastDateSent = lastDateRead;
+                                storage.put(LAST_CALL_KEY, Long.toString(lastDateSent));
+                            }
                         }
+                        sendCalls(batch);
+                        lastDateSent = lastDateRead;
                     } catch (Throwable t) {
                         logger.warn("Error in processing the call log: {}", t.getMessage());
                         t.printStackTrace();
                     } finally {
-                        if (lastDateRead != initialDateRead) {
-                            storage.put(LAST_CALL_KEY, Long.toString(lastDateRead));
+                        // calls that were not sent are read again in the next run
+                        if (lastDateSent != initialDateRead) {
+                            storage.put(LAST_CALL_KEY, Long.toString(lastDateSent));
                         }
                     }
                 } catch (IOException ex) {
                     logger.error("Failed to read or write last call processed.", ex);
+                } catch (RuntimeException ex) {
+                    // an exception would cancel all later runs
+                    logger.error("Failed to read the call log.", ex);
                 }
             }
         }, 0, period, TimeUnit.SECONDS);
@@ -165,7 +237,7 @@ public class PhoneLogManager extends AbstractDeviceManager<PhoneLogService, Base
         logger.info("Call log: listener activated and set to a period of {}", period);
     }
 
-    public final synchronized void setSmsLogUpdateRate(final long period) {
+    private void scheduleSmsLogReader(final long period) {
         if (smsLogReadFuture != null) {
             smsLogReadFuture.cancel(false);
         }
@@ -181,29 +253,52 @@ public class PhoneLogManager extends AbstractDeviceManager<PhoneLogService, Base
                         lastDateRead = threshold;
                     }
 
+                    long lastDateSent = lastDateRead;
+                    List<PhoneSms> batch = new ArrayList<>(LOG_BATCH_SIZE);
                     try (Cursor c = getService().getContentResolver().query(Telephony.Sms.CONTENT_URI, null, Telephony.Sms.DATE + " > " + lastDateRead, null, Telephony.Sms.DATE + " ASC")) {
                         if (c == null) {
                             return;
                         }
 
-                        while (c.moveToNext()) {
-                            long date = c.getLong(c.getColumnIndex(CallLog.Calls.DATE));
+                        int dateColumn = c.getColumnIndex(Telephony.Sms.DATE);
+                        int addressColumn = c.getColumnIndex(Telephony.Sms.ADDRESS);
+                        int typeColumn = c.getColumnIndex(Telephony.Sms.TYPE);
+                        int bodyColumn = c.getColumnIndex(Telephony.Sms.BODY);
 
-                            processSMS(date / 1000d,
-                                    c.getString(c.getColumnIndex(Telephony.Sms.ADDRESS)),
-                                    c.getInt(c.getColumnIndex(Telephony.Sms.TYPE)),
-                                    c.getString(c.getColumnIndex(Telephony.Sms.BODY)));
+                        while (c.moveToNext()) {
+                            long date = c.getLong(dateColumn);
+
+                            try {
+                                batch.add(createSms(date / 1000d, c.getString(addressColumn),
+                                        c.getInt(typeColumn), c.getString(bodyColumn)));
+                            } catch (RuntimeException ex) {
+                                // skip the entry, otherwise it would fail again in every run
+                                logger.warn("SMS log: skipping message at {} that cannot be processed: {}",
+                                        date, ex.toString());
+                            }
                             lastDateRead = date;
+
+                            if (batch.size() == LOG_BATCH_SIZE) {
+                                sendSms(batch);
+                                lastDateSent = lastDateRead;
+                                storage.put(LAST_SMS_KEY, Long.toString(lastDateSent));
+                            }
                         }
+                        sendSms(batch);
+                        lastDateSent = lastDateRead;
                     } catch (Exception ex) {
                         logger.error("Error in processing the sms log", ex);
                     } finally {
-                        if (lastDateRead != initialDateRead) {
-                            storage.put(LAST_SMS_KEY, Long.toString(lastDateRead));
+                        // messages that were not sent are read again in the next run
+                        if (lastDateSent != initialDateRead) {
+                            storage.put(LAST_SMS_KEY, Long.toString(lastDateSent));
                         }
                     }
                 } catch (IOException ex) {
                     logger.error("Failed to read or write last sms processed.", ex);
+                } catch (RuntimeException ex) {
+                    // an exception would cancel all later runs
+                    logger.error("Failed to read the sms log.", ex);
                 }
             }
         }, 0, period, TimeUnit.SECONDS);
@@ -212,29 +307,81 @@ public class PhoneLogManager extends AbstractDeviceManager<PhoneLogService, Base
     }
 
     public void processCall(double eventTimestamp, String target, float duration, int typeCode) {
-        // Check whether a newer call has already been stored
-        byte[] targetKey = createTargetHashKey(target);
+        PhoneCall call = createCall(eventTimestamp, target, duration, typeCode);
+        send(callTable, call);
+        callLatency.recordLatency(eventTimestamp, System.currentTimeMillis() / 1000d);
 
-        PhoneCallType type = CALL_TYPES.get(typeCode, PhoneCallType.UNKNOWN);
+        if (eventLogger.shouldLog()) {
+            eventLogger.log("Call log: {} call of {} s at {}", call.getType(), duration, eventTimestamp);
+        }
+    }
 
-        double timestamp = System.currentTimeMillis() / 1000d;
-        send(callTable, new PhoneCall(
-                eventTimestamp, timestamp, duration, ByteBuffer.wrap(targetKey), type));
+    public void processSMS(double eventTimestamp, String target, int typeCode, String message) {
+        PhoneSms sms = createSms(eventTimestamp, target, typeCode, message);
+        send(smsTable, sms);
+        smsLatency.recordLatency(eventTimestamp, System.currentTimeMillis() / 1000d);
 
-        logger.info("Call log: {}, {}, {}, {}, {}, {}", target, targetKey, duration, type, eventTimestamp, timestamp);
+        if (eventLogger.shouldLog()) {
+            eventLogger.log("SMS log: {} message of {} chars at {}", sms.getType(), sms.getLength(), eventTimestamp);
+        }
     }
 
-    public void processSMS(double eventTimestamp, String target, int typeCode, String message) {
+    private PhoneCall createCall(double eventTimestamp, String target, float duration, int typeCode) {
         byte[] targetKey = createTargetHashKey(target);
+        PhoneCallType type = CALL_TYPES.get(typeCode, PhoneCallType.UNKNOWN);
+        double timestamp = System.currentTimeMillis() / 1000d;
+        return new PhoneCall(eventTimestamp, timestamp, duration, ByteBuffer.wrap(targetKey), type);
+    }
 
+    private PhoneSms createSms(double eventTimestamp, String target, int typeCode, String message) {
+        byte[] targetKey = createTargetHashKey(target);
         PhoneSmsType type = SMS_TYPES.get(typeCode, PhoneSmsType.UNKNOWN);
-        int length = message.length();
-
         double timestamp = System.currentTimeMillis() / 1000d;
-        send(smsTable, new PhoneSms(
-                eventTimestamp, timestamp, ByteBuffer.wrap(targetKey), type, length));
+        return new PhoneSms(eventTimestamp, timestamp, ByteBuffer.wrap(targetKey), type, message.length());
+    }
 
-        logger.info("SMS log: {}, {}, {}, {}, {}, {} chars", target, targetKey, type, eventTimestamp, timestamp, length);
+    /** Send and clear a batch of calls that were read from the call log. */
+    private void sendCalls(List<PhoneCall> calls) {
+        if (calls.isEmpty()) {
+            return;
+        }
+        try {
+            sendAll(callTable, calls);
+            double now = System.currentTimeMillis() / 1000d;
+            for (PhoneCall call : calls) {
+                callLatency.recordLatency(call.getTime(), now);
+            }
+            logger.info("Call log: sent {} calls", calls.size());
+        } finally {
+            calls.clear();
+        }
+    }
+
+    /** Send and clear a batch of messages that were read from the SMS log. */
+    private void sendSms(List<PhoneSms> messages) {
+        if (messages.isEmpty()) {
+            return;
+        }
+        try {
+            sendAll(smsTable, messages);
+            double now = System.currentTimeMillis() / 1000d;
+            for (PhoneSms sms : messages) {
+                smsLatency.recordLatency(sms.getTime(), now);
+            }
+            logger.info("SMS log: sent {} messages", messages.size());
+        } finally {
+            messages.clear();
+        }
+    }
+
+    /**
+     * Send a batch of records to the data cache, in order. The data cache commits records that
+     * are added shortly after each other in a single transaction.
+     */
+    private <V extends SpecificRecord> void sendAll(DataCache<MeasurementKey, V> table, List<V> values) {
+        for (V value : values) {
+            send(table, value);
+        }
     }
 
     /**
@@ -268,9 +415,30 @@ public class PhoneLogManager extends AbstractDeviceManager<PhoneLogService, Base
 
             b64Salt = Base64.encodeToString(byteSalt, Base64.NO_WRAP);
             storage.put(HASH_KEY, b64Salt);
+            // the hashes depend on the key, so store it right away
+            storage.flush();
             return byteSalt;
         } else {
             return Base64.decode(b64Salt, Base64.NO_WRAP);
         }
     }
+
+    /**
+     * Latencies from the time of each call or SMS to the time that its record was added to the
+     * data cache. This includes the time until the log was read.
+     */
+    LatencyRecorder getSendLatencies() {
+        return sendLatencies;
+    }
+
+    @Override
+    public void close() throws IOException {
+        try {
+            storage.flush();
+        } catch (IOException ex) {
+            logger.error("Failed to store last call and SMS read", ex);
+        }
+        sendLatencies.log(logger);
+        super.close();
+    }
 }
@@ -16,8 +16,10 @@
 
 package org.radarcns.phone;
 
+import android.os.Bundle;
 import android.os.Parcelable;
 
+import org.radarcns.android.RadarConfiguration;
 import org.radarcns.android.device.BaseDeviceState;
 import org.radarcns.android.device.DeviceServiceProvider;
 
@@ -29,6 +31,9 @@ import static android.Manifest.permission.READ_SMS;
 import static android.Manifest.permission.WRITE_EXTERNAL_STORAGE;
 
 public class PhoneLogProvider extends DeviceServiceProvider<BaseDeviceState> {
+    /** Period of reading the call and SMS logs in seconds. */
+    public static final String CALL_SMS_LOG_INTERVAL_KEY = "call_sms_log_interval";
+
     @Override
     public Class<?> getServiceClass() {
         return PhoneLogService.class;
@@ -44,6 +49,14 @@ public class PhoneLogProvider extends DeviceServiceProvider<BaseDeviceState> {
         return getActivity().getString(R.string.phoneLogServiceDisplayName);
     }
 
+    @Override
+    protected void configure(Bundle bundle) {
+        super.configure(bundle);
+        RadarConfiguration config = getConfig();
+        bundle.putLong(CALL_SMS_LOG_INTERVAL_KEY, config.getLong(
+                CALL_SMS_LOG_INTERVAL_KEY, PhoneLogManager.CALL_SMS_LOG_INTERVAL_DEFAULT));
+    }
+
     @Override
     public List<String> needsPermissions() {
         return Arrays.asList(WRITE_EXTERNAL_STORAGE, READ_CALL_LOG, READ_SMS);
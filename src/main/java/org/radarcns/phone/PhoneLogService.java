@@ -16,20 +16,47 @@
 
 package org.radarcns.phone;
 
+import android.os.Bundle;
+
 import org.radarcns.android.device.BaseDeviceState;
 import org.radarcns.android.device.DeviceManager;
 import org.radarcns.android.device.DeviceService;
 import org.radarcns.android.device.DeviceStatusListener;
 import org.radarcns.android.util.PersistentStorage;
 
+import java.io.FileDescriptor;
+import java.io.PrintWriter;
+
 import static org.radarcns.android.RadarConfiguration.SOURCE_ID_KEY;
+import static org.radarcns.phone.PhoneLogManager.CALL_SMS_LOG_INTERVAL_DEFAULT;
+import static org.radarcns.phone.PhoneLogProvider.CALL_SMS_LOG_INTERVAL_KEY;
 
 public class PhoneLogService extends DeviceService {
     private String sourceId;
+    private long logInterval = CALL_SMS_LOG_INTERVAL_DEFAULT;
 
     @Override
     protected DeviceManager createDeviceManager() {
-        return new PhoneLogManager(this, getDataHandler(), getUserId(), getSourceId());
+        PhoneLogManager manager = new PhoneLogManager(this, getDataHandler(), getUserId(), getSourceId());
+        configureManager(manager);
+        return manager;
+    }
+
+    @Override
+    protected void onInvocation(Bundle bundle) {
+        super.onInvocation(bundle);
+        logInterval = bundle.getLong(CALL_SMS_LOG_INTERVAL_KEY, CALL_SMS_LOG_INTERVAL_DEFAULT);
+
+        // apply the new configuration to a running manager
+        PhoneLogManager manager = (PhoneLogManager) getDeviceManager();
+        if (manager != null) {
+            configureManager(manager);
+        }
+    }
+
+    private void configureManager(PhoneLogManager manager) {
+        manager.setCallLogUpdateRate(logInterval);
+        manager.setSmsLogUpdateRate(logInterval);
     }
 
     @Override
@@ -39,6 +66,20 @@ public class PhoneLogService extends DeviceService {
         return state;
     }
 
+    /**
+     * Print the send latencies per topic, with
+     * {@code adb shell dumpsys activity service org.radarcns.phone.PhoneLogService}. Add the
+     * argument {@code reset} to remove the latencies after printing them.
+     */
+    @Override
+    protected void dump(FileDescriptor fd, PrintWriter writer, String[] args) {
+        super.dump(fd, writer, args);
+        PhoneLogManager manager = (PhoneLogManager) getDeviceManager();
+        if (manager != null) {
+            manager.getSendLatencies().dump(writer, args);
+        }
+    }
+
     @Override
     protected PhoneLogTopics getTopics() {
         return PhoneLogTopics.getInstance();
@@ -16,17 +16,27 @@
 
 package org.radarcns.phone;
 
+import android.app.KeyguardManager;
 import android.content.BroadcastReceiver;
 import android.content.Context;
 import android.content.Intent;
 import android.content.IntentFilter;
 import android.hardware.Sensor;
 import android.hardware.SensorEvent;
-import android.hardware.SensorEventListener;
+import android.hardware.SensorEventListener2;
 import android.hardware.SensorManager;
+import android.hardware.TriggerEvent;
+import android.hardware.TriggerEventListener;
 import android.os.BatteryManager;
+import android.os.Build;
+import android.os.Handler;
+import android.os.HandlerThread;
+import android.os.PowerManager;
+import android.os.Process;
+import android.os.SystemClock;
 import android.support.annotation.NonNull;
 import android.util.SparseArray;
+import android.util.SparseIntArray;
 
 import org.radarcns.android.data.DataCache;
 import org.radarcns.android.data.TableDataHandler;
@@ -47,11 +57,53 @@ import static android.os.BatteryManager.BATTERY_STATUS_FULL;
 import static android.os.BatteryManager.BATTERY_STATUS_NOT_CHARGING;
 import static android.os.BatteryManager.BATTERY_STATUS_UNKNOWN;
 
-/** Manages Phone sensors */
-class PhoneSensorManager extends AbstractDeviceManager<PhoneSensorService, PhoneState> implements DeviceManager, SensorEventListener {
+/**
+ * Manages Phone sensors.
+ *
+ * <p>Sensor events, broadcasts and scheduled reports are processed on the PhoneSensors handler
+ * thread. The acceleration pipeline (buffer, block encoder, aggregator, orientation filter and
+ * spectral features) is only replaced on that thread, after any events that are already queued,
+ * so no event is added to a pipeline object after it was sent and replaced. Configuration
+ * methods may be called from any thread.
+ */
+class PhoneSensorManager extends AbstractDeviceManager<PhoneSensorService, PhoneState> implements DeviceManager, SensorEventListener2 {
     private static final Logger logger = LoggerFactory.getLogger(PhoneSensorManager.class);
+    private static final EventLogger eventLogger = new EventLogger(logger, 1, 10);
 
     private static final float EARTH_GRAVITATIONAL_ACCELERATION = 9.80665f;
+    // acceleration buffering, disabled by default
+    static final int ACCELERATION_BUFFER_SIZE_DEFAULT = 0;
+    static final double ACCELERATION_BUFFER_MAX_AGE_DEFAULT = 10d; // seconds
+    // block encoding of buffered acceleration, disabled by default
+    static final int ACCELERATION_BLOCK_SIZE_DEFAULT = 0;
+    static final float ACCELERATION_QUANTIZATION_DEFAULT = 0f; // g
+    // acceleration aggregation, disabled by default
+    static final double ACCELERATION_WINDOW_DEFAULT = 0d; // seconds
+    // change detection of light and battery level, disabled by default
+    static final double CHANGE_MAX_SILENCE_DEFAULT = 0d; // seconds
+    // adaptive accelerometer sampling while the device is still, disabled by default
+    static final int ACCELERATION_STILL_DELAY_DEFAULT = 0; // microseconds
+    static final double ACCELERATION_STILL_DURATION_DEFAULT = 5*60; // seconds
+    private static final double MOTION_WINDOW = 10d; // seconds
+    private static final double STILL_THRESHOLD = 0.01d; // standard deviation in g
+    private static final double MOTION_THRESHOLD = 0.1d; // deviation in g
+    // interval of sensor health reports
+    static final long SENSOR_HEALTH_INTERVAL_DEFAULT = 5*60*1000L; // milliseconds
+    // sensor sampling period, equal to SensorManager.SENSOR_DELAY_NORMAL
+    static final int SENSOR_DELAY_DEFAULT = 200_000; // microseconds
+    // interval to synchronize the sensor clock with UTC
+    private static final long CLOCK_SYNC_INTERVAL = 10*60*1_000_000_000L; // nanoseconds
+    // maximum time to wait for queued sensor events when closing
+    private static final long HANDLER_QUIT_TIMEOUT = 1000L; // milliseconds
+    // hardware batching, disabled by default
+    static final int SENSOR_MAX_REPORT_LATENCY_DEFAULT = 0; // microseconds
+    // spectral features of acceleration, disabled by default
+    static final int ACCELERATION_SPECTRUM_WINDOW_DEFAULT = 0; // samples
+    static final int ACCELERATION_SPECTRUM_HOP_DEFAULT = 0; // samples
+    // screen session summaries, disabled by default
+    static final double INTERACTION_SUMMARY_INTERVAL_DEFAULT = 0d; // seconds
+    // sensor fusion, disabled by default
+    static final double SENSOR_FUSION_INTERVAL_DEFAULT = 0d; // seconds
     private static final SparseArray<BatteryStatus> BATTERY_TYPES = new SparseArray<>(5);
 
     static {
@@ -66,8 +118,54 @@ class PhoneSensorManager extends AbstractDeviceManager<PhoneSensorService, Phone
     private final DataCache<MeasurementKey, PhoneLight> lightTable;
     private final AvroTopic<MeasurementKey, PhoneBatteryLevel> batteryTopic;
     private final DataCache<MeasurementKey, PhoneUserInteraction> userInteractionTable;
+    private final DataCache<MeasurementKey, PhoneAccelerationWindow> accelerationWindowTable;
+    private final DataCache<MeasurementKey, PhoneAccelerationBlock> accelerationBlockTable;
+    private final DataCache<MeasurementKey, PhoneSensorHealth> sensorHealthTable;
+    private final DataCache<MeasurementKey, PhoneLinearAcceleration> linearAccelerationTable;
+    private final DataCache<MeasurementKey, PhoneOrientation> orientationTable;
+    private final DataCache<MeasurementKey, PhoneAccelerationSpectrum> accelerationSpectrumTable;
+    private final DataCache<MeasurementKey, PhoneInteractionSummary> interactionSummaryTable;
+    private final LatencyRecorder sendLatencies;
+    private final LatencyHistogram accelerationLatency;
+    private final LatencyHistogram accelerationWindowLatency;
+    private final LatencyHistogram accelerationBlockLatency;
+    private final LatencyHistogram lightLatency;
+    private final LatencyHistogram sensorHealthLatency;
+    private final LatencyHistogram linearAccelerationLatency;
+    private final LatencyHistogram orientationLatency;
+    private final LatencyHistogram accelerationSpectrumLatency;
+    private final LatencyHistogram interactionSummaryLatency;
 
     private SensorManager sensorManager;
+    private final HandlerThread handlerThread;
+    private Handler handler;
+    private BroadcastReceiver batteryLevelReceiver;
+    private BroadcastReceiver screenStateReceiver;
+    private BroadcastReceiver timeChangedReceiver;
+    private final ClockOffset clockOffset;
+    private volatile ChangeDetector lightChangeDetector;
+    private volatile ChangeDetector batteryChangeDetector;
+    private boolean lastBatteryPlugged;
+    private BatteryStatus lastBatteryStatus;
+    private volatile MotionDetector motionDetector;
+    private int accelerationStillDelay;
+    private double accelerationStillDuration;
+    private boolean isStill;
+    private final TriggerEventListener significantMotionListener;
+    private long sensorHealthInterval;
+    private final Runnable sensorHealthReporter;
+    private volatile ScreenSessionTracker screenSessionTracker;
+    private final Runnable interactionSummaryReporter;
+    private volatile AccelerationBuffer accelerationBuffer;
+    private final Runnable accelerationBufferFlusher;
+    private volatile AccelerationBlockEncoder accelerationBlockEncoder;
+    private volatile AccelerationAggregator accelerationAggregator;
+    private volatile OrientationFilter orientationFilter;
+    private volatile SpectralFeatureExtractor spectralFeatureExtractor;
+    private int maxReportLatency;
+    private final SparseIntArray sensorDelays;
+    private final SensorRegistry sensorRegistry;
+    private final SamplingGovernor samplingGovernor;
 
     public PhoneSensorManager(PhoneSensorService context, TableDataHandler dataHandler, String groupId, String sourceId) {
         super(context, new PhoneState(), dataHandler, groupId, sourceId);
@@ -75,71 +173,450 @@ class PhoneSensorManager extends AbstractDeviceManager<PhoneSensorService, Phone
         this.accelerationTable = dataHandler.getCache(topics.getAccelerationTopic());
         this.lightTable = dataHandler.getCache(topics.getLightTopic());
         this.userInteractionTable = dataHandler.getCache(topics.getUserInteractionTopic());
+        this.accelerationWindowTable = dataHandler.getCache(topics.getAccelerationWindowTopic());
+        this.accelerationBlockTable = dataHandler.getCache(topics.getAccelerationBlockTopic());
+        this.sensorHealthTable = dataHandler.getCache(topics.getSensorHealthTopic());
+        this.linearAccelerationTable = dataHandler.getCache(topics.getLinearAccelerationTopic());
+        this.orientationTable = dataHandler.getCache(topics.getOrientationTopic());
+        this.accelerationSpectrumTable = dataHandler.getCache(topics.getAccelerationSpectrumTopic());
+        this.interactionSummaryTable = dataHandler.getCache(topics.getInteractionSummaryTopic());
         this.batteryTopic = topics.getBatteryLevelTopic();
 
+        sendLatencies = new LatencyRecorder();
+        accelerationLatency = sendLatencies.get(topics.getAccelerationTopic());
+        accelerationWindowLatency = sendLatencies.get(topics.getAccelerationWindowTopic());
+        accelerationBlockLatency = sendLatencies.get(topics.getAccelerationBlockTopic());
+        lightLatency = sendLatencies.get(topics.getLightTopic());
+        sensorHealthLatency = sendLatencies.get(topics.getSensorHealthTopic());
+        linearAccelerationLatency = sendLatencies.get(topics.getLinearAccelerationTopic());
+        orientationLatency = sendLatencies.get(topics.getOrientationTopic());
+        accelerationSpectrumLatency = sendLatencies.get(topics.getAccelerationSpectrumTopic());
+        interactionSummaryLatency = sendLatencies.get(topics.getInteractionSummaryTopic());
+
         sensorManager = null;
+        // sensor events and broadcasts are processed on a background thread
+        handlerThread = new HandlerThread("PhoneSensors", Process.THREAD_PRIORITY_BACKGROUND);
+        clockOffset = new ClockOffset(CLOCK_SYNC_INTERVAL);
+        lightChangeDetector = null;
+        batteryChangeDetector = null;
+        lastBatteryStatus = null;
+        motionDetector = null;
+        accelerationStillDelay = ACCELERATION_STILL_DELAY_DEFAULT;
+        accelerationStillDuration = ACCELERATION_STILL_DURATION_DEFAULT;
+        isStill = false;
+        significantMotionListener = new TriggerEventListener() {
+            @Override
+            public void onTrigger(TriggerEvent event) {
+                onSignificantMotion();
+            }
+        };
+        maxReportLatency = SENSOR_MAX_REPORT_LATENCY_DEFAULT;
+        sensorDelays = new SparseIntArray();
+        samplingGovernor = new SamplingGovernor(SamplingGovernor.START_LEVEL_DEFAULT);
+        sensorHealthInterval = SENSOR_HEALTH_INTERVAL_DEFAULT;
+        sensorHealthReporter = new Runnable() {
+            @Override
+            public void run() {
+                reportSensorHealth();
+                scheduleSensorHealthReport();
+            }
+        };
+        accelerationBufferFlusher = new Runnable() {
+            @Override
+            public void run() {
+                // no new samples drained the buffer within its maximum age
+                AccelerationBuffer buffer = accelerationBuffer;
+                if (buffer != null) {
+                    synchronized (buffer) {
+                        flushAccelerationBuffer(buffer);
+                    }
+                }
+            }
+        };
+        screenSessionTracker = null;
+        interactionSummaryReporter = new Runnable() {
+            @Override
+            public void run() {
+                updateScreenSession(System.currentTimeMillis() / 1000d, null);
+                scheduleInteractionSummary();
+            }
+        };
+
+        sensorRegistry = new SensorRegistry();
+        sensorRegistry.register(Sensor.TYPE_ACCELEROMETER, "Accelerometer",
+                topics.getAccelerationTopic(), SENSOR_DELAY_DEFAULT,
+                new SensorRegistry.SensorProcessor() {
+                    @Override
+                    public void process(SensorEvent event) {
+                        processAcceleration(event);
+                    }
+                });
+        sensorRegistry.register(Sensor.TYPE_LIGHT, "Light sensor",
+                topics.getLightTopic(), SENSOR_DELAY_DEFAULT,
+                new SensorRegistry.SensorProcessor() {
+                    @Override
+                    public void process(SensorEvent event) {
+                        processLight(event);
+                    }
+                });
+        // sensor fusion inputs, only registered while sensor fusion is enabled
+        sensorRegistry.register(Sensor.TYPE_GYROSCOPE, "Gyroscope",
+                topics.getOrientationTopic(), SENSOR_DELAY_DEFAULT,
+                new SensorRegistry.SensorProcessor() {
+                    @Override
+                    public void process(SensorEvent event) {
+                        processRotationRate(event);
+                    }
+                });
+        sensorRegistry.register(Sensor.TYPE_MAGNETIC_FIELD, "Magnetometer",
+                topics.getOrientationTopic(), SENSOR_DELAY_DEFAULT,
+                new SensorRegistry.SensorProcessor() {
+                    @Override
+                    public void process(SensorEvent event) {
+                        processMagneticField(event);
+                    }
+                });
+        sensorRegistry.get(Sensor.TYPE_GYROSCOPE).setEnabled(false);
+        sensorRegistry.get(Sensor.TYPE_MAGNETIC_FIELD).setEnabled(false);
+        setAccelerationBuffer(ACCELERATION_BUFFER_SIZE_DEFAULT, ACCELERATION_BUFFER_MAX_AGE_DEFAULT);
+        setAccelerationWindow(ACCELERATION_WINDOW_DEFAULT);
         // Initialize the Device Manager using your API key. You need to have Internet access at this point.
 
         setName(android.os.Build.MODEL);
     }
 
     @Override
-    public void start(@NonNull final Set<String> acceptableIds) {
-        sensorManager = (SensorManager) getService().getSystemService(Context.SENSOR_SERVICE);
+    public synchronized void start(@NonNull final Set<String> acceptableIds) {
+        handlerThread.start();
+        handler = new Handler(handlerThread.getLooper());
 
-        // Accelerometer
-        if (sensorManager.getDefaultSensor(Sensor.TYPE_ACCELEROMETER) != null) {
-            // success! we have an accelerometer
-            Sensor accelerometer = sensorManager.getDefaultSensor(Sensor.TYPE_ACCELEROMETER);
-            sensorManager.registerListener(this, accelerometer, SensorManager.SENSOR_DELAY_NORMAL);
-        } else {
-            logger.warn("Phone Accelerometer not found");
-        }
-
-        // Light
-        if (sensorManager.getDefaultSensor(Sensor.TYPE_LIGHT) != null) {
-            Sensor lightSensor = sensorManager.getDefaultSensor(Sensor.TYPE_LIGHT);
-            sensorManager.registerListener(this, lightSensor, SensorManager.SENSOR_DELAY_NORMAL);
-        } else {
-            logger.warn("Phone Light sensor not found");
-        }
-
-        // Battery
-        IntentFilter batteryFilter = new IntentFilter(Intent.ACTION_BATTERY_CHANGED);
-        processBatteryStatus(getService().registerReceiver(new BroadcastReceiver() {
+        // Battery and power-save mode, before sensors are registered at a battery-aware rate
+        batteryLevelReceiver = new BroadcastReceiver() {
             @Override
             public void onReceive(Context context, Intent intent) {
                 if (intent.getAction().equals(Intent.ACTION_BATTERY_CHANGED)) {
                     processBatteryStatus(intent);
                 }
+                updateSamplingGovernor(intent);
+            }
+        };
+        final Intent batteryStatus = getService().registerReceiver(
+                batteryLevelReceiver, SamplingGovernor.createIntentFilter(), null, handler);
+        sensorManager = (SensorManager) getService().getSystemService(Context.SENSOR_SERVICE);
+        // on the sensor thread, like the updates from the receiver
+        handler.post(new Runnable() {
+            @Override
+            public void run() {
+                processBatteryStatus(batteryStatus);
+                startSampling(batteryStatus);
             }
-        }, batteryFilter));
+        });
+        // starts the first sensor health interval
+        handler.post(sensorHealthReporter);
 
         // Screen active
         IntentFilter screenStateFilter = new IntentFilter();
         screenStateFilter.addAction(Intent.ACTION_USER_PRESENT);
         screenStateFilter.addAction(Intent.ACTION_SCREEN_OFF);
-        getService().registerReceiver(new BroadcastReceiver() {
+        screenStateFilter.addAction(Intent.ACTION_SCREEN_ON);
+        screenStateReceiver = new BroadcastReceiver() {
             @Override
             public void onReceive(Context context, Intent intent) {
                 if (intent.getAction().equals(Intent.ACTION_USER_PRESENT) ||
-                    intent.getAction().equals(Intent.ACTION_SCREEN_OFF)) {
+                    intent.getAction().equals(Intent.ACTION_SCREEN_OFF) ||
+                    intent.getAction().equals(Intent.ACTION_SCREEN_ON)) {
                     processInteractionState(intent);
                 }
             }
-        }, screenStateFilter);
+        };
+        getService().registerReceiver(screenStateReceiver, screenStateFilter, null, handler);
+        startScreenSessionTracker();
+
+        // Wall clock changes
+        timeChangedReceiver = new BroadcastReceiver() {
+            @Override
+            public void onReceive(Context context, Intent intent) {
+                clockOffset.synchronize();
+            }
+        };
+        getService().registerReceiver(timeChangedReceiver,
+                new IntentFilter(Intent.ACTION_TIME_CHANGED), null, handler);
 
         updateStatus(DeviceStatusListener.Status.CONNECTED);
     }
 
+    private synchronized void registerSensors() {
+        for (int i = 0; i < sensorRegistry.size(); i++) {
+            SensorRegistry.Entry entry = sensorRegistry.valueAt(i);
+            if (!entry.isEnabled()) {
+                continue;
+            }
+            Sensor sensor = sensorManager.getDefaultSensor(entry.getType());
+            if (sensor != null) {
+                registerSensor(sensor);
+                logger.info("Phone {} registered for topic {}", entry.getName(), entry.getTopic().getName());
+            } else {
+                logger.warn("Phone {} not found", entry.getName());
+            }
+        }
+    }
+
+    /**
+     * Register a sensor, delivering its events on the sensor thread. If a maximum report latency
+     * is set and the sensor has a hardware FIFO, events are batched by the sensor hub and
+     * delivered in bursts.
+     */
+    private void registerSensor(Sensor sensor) {
+        int delay = getEffectiveSensorDelay(sensor.getType());
+        SensorRegistry.Entry entry = sensorRegistry.get(sensor.getType());
+        if (entry != null) {
+            entry.getHealth().setRequestedDelay(delay);
+        }
+        if (maxReportLatency > 0 && sensor.getFifoMaxEventCount() > 0) {
+            sensorManager.registerListener(this, sensor, delay, maxReportLatency, handler);
+            logger.info("Phone sensor {} batched with a maximum report latency of {} us",
+                    sensor.getName(), maxReportLatency);
+        } else {
+            sensorManager.registerListener(this, sensor, delay, handler);
+        }
+    }
+
+    /**
+     * Set the maximum time that sensor events may be delayed by the sensor hub before they are
+     * reported. If the manager was already started, sensors are registered again.
+     * @param latency maximum report latency in microseconds, or 0 to report all events directly.
+     */
+    public synchronized void setMaxReportLatency(int latency) {
+        if (latency == maxReportLatency) {
+            return;
+        }
+        maxReportLatency = latency;
+        reregisterSensors();
+    }
+
+    /**
+     * Set the sampling period of sensors. Sensors that are not listed keep their current period.
+     * If the manager was already started, sensors are registered again.
+     * @param delays sampling period in microseconds, per sensor type.
+     */
+    public synchronized void setSensorDelays(SparseIntArray delays) {
+        boolean changed = false;
+        for (int i = 0; i < delays.size(); i++) {
+            int type = delays.keyAt(i);
+            int delay = delays.valueAt(i);
+            if (getSensorDelay(type) != delay) {
+                sensorDelays.put(type, delay);
+                changed = true;
+            }
+        }
+        if (changed) {
+            reregisterSensors();
+        }
+    }
+
+    /**
+     * Lower the accelerometer sampling rate while the device is lying still. Stillness is detected
+     * from the variance of the acceleration magnitude. The normal rate is restored when the
+     * acceleration changes or when the significant motion sensor triggers.
+     * @param stillDelay sampling period in microseconds while the device is still, or 0 to always
+     *                   use the normal sampling period.
+     * @param stillDuration time in seconds that the device must be still before the sampling rate
+     *                      is lowered.
+     */
+    public synchronized void setAdaptiveSampling(int stillDelay, double stillDuration) {
+        if (stillDelay == accelerationStillDelay && stillDuration == accelerationStillDuration) {
+            return;
+        }
+        accelerationStillDuration = stillDuration;
+        if (stillDelay > 0) {
+            motionDetector = new MotionDetector(MOTION_WINDOW, stillDuration,
+                    STILL_THRESHOLD, MOTION_THRESHOLD);
+        } else {
+            motionDetector = null;
+        }
+        accelerationStillDelay = stillDelay;
+        // start detecting stillness anew
+        setStill(false);
+    }
+
+    private void onSignificantMotion() {
+        final Handler localHandler = handler;
+        if (localHandler == null) {
+            return;
+        }
+        localHandler.post(new Runnable() {
+            @Override
+            public void run() {
+                MotionDetector detector = motionDetector;
+                if (detector != null) {
+                    detector.setMoving();
+                }
+                setStill(false);
+            }
+        });
+    }
+
+    /**
+     * Update the accelerometer sampling rate to whether the device is still. While still, the
+     * significant motion sensor is used to detect motion, if available.
+     */
+    private synchronized void setStill(boolean still) {
+        if (still == isStill) {
+            return;
+        }
+        isStill = still;
+        logger.info("Phone is {}, accelerometer sampling period set to {} us",
+                still ? "still" : "moving",
+                getEffectiveSensorDelay(Sensor.TYPE_ACCELEROMETER));
+
+        if (handler == null) {
+            return;
+        }
+        reregisterAccelerometer();
+
+        Sensor significantMotion = sensorManager.getDefaultSensor(Sensor.TYPE_SIGNIFICANT_MOTION);
+        if (significantMotion != null) {
+            if (still) {
+                sensorManager.requestTriggerSensor(significantMotionListener, significantMotion);
+            } else {
+                sensorManager.cancelTriggerSensor(significantMotionListener, significantMotion);
+            }
+        }
+    }
+
+    private void reregisterAccelerometer() {
+        Sensor accelerometer = sensorManager.getDefaultSensor(Sensor.TYPE_ACCELEROMETER);
+        if (handler != null && accelerometer != null) {
+            sensorManager.unregisterListener(this, accelerometer);
+            registerSensor(accelerometer);
+        }
+    }
+
+    /** Configured sampling period of given sensor type in microseconds. */
+    private int getSensorDelay(int type) {
+        SensorRegistry.Entry entry = sensorRegistry.get(type);
+        int defaultDelay = entry != null ? entry.getDefaultDelay() : SENSOR_DELAY_DEFAULT;
+        return sensorDelays.get(type, defaultDelay);
+    }
+
+    /**
+     * Sampling period of given sensor type in microseconds, at the current battery tier. For the
+     * accelerometer, this takes into account whether the phone is still.
+     */
+    private int getEffectiveSensorDelay(int type) {
+        int delay = type == Sensor.TYPE_ACCELEROMETER && isStill
+                ? accelerationStillDelay : getSensorDelay(type);
+        return delay * samplingGovernor.getFactor();
+    }
+
+    /**
+     * Increase sensor sampling periods as the battery drains. Below given battery level, sampling
+     * periods are doubled, and they are doubled again at half and at a quarter of that level. In
+     * power-save mode, periods are at least quadrupled. While charging, the configured periods
+     * are used.
+     * @param level battery level as a fraction of a full battery, or 0 to always use the
+     *              configured sampling periods.
+     */
+    public synchronized void setBatterySavingLevel(float level) {
+        if (level == samplingGovernor.getStartLevel()) {
+            return;
+        }
+        if (samplingGovernor.setStartLevel(level)) {
+            onSamplingTierChanged();
+        }
+    }
+
+    /** Set the first battery tier and register sensors at its sampling periods. */
+    private synchronized void startSampling(Intent batteryStatus) {
+        samplingGovernor.update(getService(), batteryStatus);
+        samplingGovernor.updatePowerSaveMode(getService());
+        reregisterSensors();
+    }
+
+    private synchronized void updateSamplingGovernor(Intent intent) {
+        if (samplingGovernor.update(getService(), intent)) {
+            onSamplingTierChanged();
+        }
+    }
+
+    private void onSamplingTierChanged() {
+        logger.info("Battery sampling tier {}: sensor sampling periods multiplied by {}",
+                samplingGovernor.getTier(), samplingGovernor.getFactor());
+        reregisterSensors();
+    }
+
+    private synchronized void reregisterSensors() {
+        if (handler != null) {
+            sensorManager.unregisterListener(this);
+            registerSensors();
+        }
+    }
+
     @Override
     public void onSensorChanged(SensorEvent event) {
-        if ( event.sensor.getType() == Sensor.TYPE_ACCELEROMETER ) {
-            processAcceleration(event);
-        } else if ( event.sensor.getType() == Sensor.TYPE_LIGHT ) {
-            processLight(event);
+        SensorRegistry.Entry entry = sensorRegistry.get(event.sensor.getType());
+        if (entry != null) {
+            entry.getHealth().add(event.timestamp);
+            entry.getProcessor().process(event);
         } else {
-            logger.info("Phone registered other sensor change: '{}'", event.sensor.getType());
+            if (eventLogger.shouldLog()) {
+                eventLogger.log("Phone registered other sensor change: '{}'", event.sensor.getType());
+            }
+        }
+    }
+
+    /**
+     * Set the interval of sensor health reports. Each report is sent as a PhoneSensorHealth record
+     * per registered sensor, and updates the accelerometer health in the phone state.
+     * @param interval interval in milliseconds, or 0 to disable reports.
+     */
+    public synchronized void setSensorHealthInterval(long interval) {
+        if (interval == sensorHealthInterval) {
+            return;
+        }
+        sensorHealthInterval = interval;
+        if (handler != null) {
+            handler.removeCallbacks(sensorHealthReporter);
+            scheduleSensorHealthReport();
+        }
+    }
+
+    private synchronized void scheduleSensorHealthReport() {
+        if (handler != null && sensorHealthInterval > 0) {
+            handler.postDelayed(sensorHealthReporter, sensorHealthInterval);
+        }
+    }
+
+    /**
+     * Send the health of registered sensors since the last report. Run on the sensor thread,
+     * which also adds events to the sensor health.
+     */
+    private void reportSensorHealth() {
+        long now = SystemClock.elapsedRealtimeNanos();
+        for (int i = 0; i < sensorRegistry.size(); i++) {
+            SensorRegistry.Entry entry = sensorRegistry.valueAt(i);
+            SensorHealth health = entry.getHealth();
+            if (!health.isRegistered()) {
+                continue;
+            }
+            if (!health.isStarted()) {
+                health.start(now);
+                continue;
+            }
+            if (entry.getType() == Sensor.TYPE_ACCELEROMETER) {
+                long lastTimestamp = health.getLastTimestamp();
+                getState().setAccelerationHealth((float) health.getEffectiveRate(now),
+                        health.getGapCount(), lastTimestamp != Long.MIN_VALUE
+                                ? clockOffset.toUtcSeconds(lastTimestamp) : Double.NaN);
+            }
+            PhoneSensorHealth record = health.createRecord(
+                    entry.getType(), entry.getName(), now, clockOffset);
+            if (record.getGapCount() > 0) {
+                logger.warn("Phone {} had {} gaps in its events, at {} Hz",
+                        entry.getName(), record.getGapCount(), record.getEffectiveRate());
+            }
+            send(sensorHealthTable, record);
+            sensorHealthLatency.recordLatency(record.getTimeReceived(), sensorTimeNow());
         }
     }
 
@@ -148,6 +625,25 @@ class PhoneSensorManager extends AbstractDeviceManager<PhoneSensorService, Phone
         // no action
     }
 
+    @Override
+    public void onFlushCompleted(Sensor sensor) {
+        // the sensor FIFO has been emptied, send any buffered samples along
+        if (sensor.getType() == Sensor.TYPE_ACCELEROMETER) {
+            AccelerationBuffer buffer = accelerationBuffer;
+            if (buffer != null) {
+                synchronized (buffer) {
+                    flushAccelerationBuffer(buffer);
+                }
+            }
+        }
+    }
+
+    /**
+     * Process an accelerometer event through the acceleration pipeline. This runs on the sensor
+     * thread, which is also the only thread that replaces pipeline objects once the manager is
+     * started. The locks on pipeline objects are uncontended then; they guard callers that drive
+     * the manager from another thread without starting it, like the benchmarks.
+     */
     public void processAcceleration(SensorEvent event) {
         // x,y,z are in m/s2
         float x = event.values[0] / EARTH_GRAVITATIONAL_ACCELERATION;
@@ -157,12 +653,334 @@ class PhoneSensorManager extends AbstractDeviceManager<PhoneSensorService, Phone
         
         double timeReceived = System.currentTimeMillis() / 1_000d;
         
-        // nanoseconds uptime to seconds utc by calculating
-        // current timestamp minus difference between current uptime and uptime at sensor event.
-        // this accounts for the event happing slightly before processing it here
-        double time = ( timeReceived - (System.nanoTime() - event.timestamp) / 1_000_000_000d );    
+        // nanoseconds elapsed realtime to seconds utc. Elapsed realtime also accounts for batched
+        // events that were recorded while the device was asleep.
+        double time = clockOffset.toUtcSeconds(event.timestamp);
+
+        MotionDetector detector = motionDetector;
+        if (detector != null && detector.add(time, x, y, z)) {
+            setStill(detector.isStill());
+        }
+
+        OrientationFilter filter = orientationFilter;
+        if (filter != null) {
+            synchronized (filter) {
+                if (filter.addAcceleration(time, x, y, z)) {
+                    sendOrientation(filter, time, timeReceived);
+                }
+            }
+        }
+
+        SpectralFeatureExtractor extractor = spectralFeatureExtractor;
+        if (extractor != null) {
+            synchronized (extractor) {
+                if (extractor.add(time, x, y, z)) {
+                    PhoneAccelerationSpectrum spectrum = extractor.createRecord(timeReceived);
+                    send(accelerationSpectrumTable, spectrum);
+                    // latency from the last sample in the window
+                    accelerationSpectrumLatency.recordLatency(time, sensorTimeNow());
+                }
+            }
+        }
+
+        AccelerationAggregator aggregator = accelerationAggregator;
+        if (aggregator != null) {
+            synchronized (aggregator) {
+                if (aggregator.isWindowComplete(time)) {
+                    sendAccelerationWindow(aggregator.createRecord(timeReceived));
+                }
+                aggregator.add(time, x, y, z);
+            }
+            return;
+        }
+
+        AccelerationBuffer buffer = accelerationBuffer;
+        if (buffer == null) {
+            send(accelerationTable, new PhoneAcceleration(time, timeReceived, x, y, z));
+            accelerationLatency.recordLatency(time, sensorTimeNow());
+        } else {
+            synchronized (buffer) {
+                if (buffer.add(time, timeReceived, x, y, z)) {
+                    flushAccelerationBuffer(buffer);
+                } else if (buffer.size() == 1) {
+                    scheduleAccelerationBufferFlush(buffer.getMaxAge());
+                }
+            }
+        }
+    }
+
+    public void processRotationRate(SensorEvent event) {
+        OrientationFilter filter = orientationFilter;
+        if (filter == null) {
+            return;
+        }
+        double time = clockOffset.toUtcSeconds(event.timestamp);
+        synchronized (filter) {
+            filter.addRotationRate(time, event.values[0], event.values[1], event.values[2]);
+        }
+    }
+
+    public void processMagneticField(SensorEvent event) {
+        OrientationFilter filter = orientationFilter;
+        if (filter == null) {
+            return;
+        }
+        double time = clockOffset.toUtcSeconds(event.timestamp);
+        synchronized (filter) {
+            filter.addMagneticField(time, event.values[0], event.values[1], event.values[2]);
+        }
+    }
+
+    /** Send the linear acceleration and orientation of the filter. Call while synchronized on it. */
+    private void sendOrientation(OrientationFilter filter, double time, double timeReceived) {
+        send(linearAccelerationTable, new PhoneLinearAcceleration(time, timeReceived,
+                filter.getLinearX(), filter.getLinearY(), filter.getLinearZ()));
+        send(orientationTable, new PhoneOrientation(time, timeReceived,
+                filter.getAzimuth(), filter.getPitch(), filter.getRoll()));
+        double now = sensorTimeNow();
+        linearAccelerationLatency.recordLatency(time, now);
+        orientationLatency.recordLatency(time, now);
+    }
+
+    /**
+     * Fuse the accelerometer with the gyroscope and magnetometer, if present, to send linear
+     * acceleration without gravity and the phone orientation at a decimated interval. The
+     * gyroscope and magnetometer are only registered while sensor fusion is enabled, at the
+     * sampling period that is configured for them.
+     * @param interval interval in seconds between linear acceleration and orientation records,
+     *                 or 0 to disable sensor fusion.
+     */
+    public void setSensorFusion(final double interval) {
+        runOnSensorThread(new Runnable() {
+            @Override
+            public void run() {
+                updateSensorFusion(interval);
+            }
+        });
+    }
+
+    private synchronized void updateSensorFusion(double interval) {
+        OrientationFilter oldFilter = orientationFilter;
+        if (oldFilter == null ? interval <= 0d : oldFilter.getInterval() == interval) {
+            return;
+        }
+        boolean enabled = interval > 0d;
+        orientationFilter = enabled ? new OrientationFilter(interval) : null;
+        if (enabled != (oldFilter != null)) {
+            for (int type : new int[] {Sensor.TYPE_GYROSCOPE, Sensor.TYPE_MAGNETIC_FIELD}) {
+                SensorRegistry.Entry entry = sensorRegistry.get(type);
+                entry.setEnabled(enabled);
+                if (!enabled) {
+                    entry.getHealth().setRequestedDelay(0);
+                }
+            }
+            reregisterSensors();
+        }
+    }
+
+    /**
+     * Send spectral features of the acceleration magnitude over sliding windows of samples, in
+     * addition to the acceleration itself. A window size that is not a power of two is rounded
+     * down to one.
+     * @param windowSize number of samples in a window, or 0 to disable spectral features.
+     * @param hopSize number of samples between the starts of subsequent windows, or 0 to use
+     *                half the window size.
+     */
+    public void setAccelerationSpectrum(int windowSize, int hopSize) {
+        if (windowSize > 0 && (windowSize < 4 || Integer.bitCount(windowSize) != 1)) {
+            int rounded = Math.max(Integer.highestOneBit(windowSize), 4);
+            logger.warn("Acceleration spectrum window size {} is not a power of two, using {}",
+                    windowSize, rounded);
+            windowSize = rounded;
+        }
+        if (windowSize > 0 && hopSize <= 0) {
+            hopSize = windowSize / 2;
+        }
+        final int finalWindowSize = windowSize;
+        final int finalHopSize = hopSize;
+        runOnSensorThread(new Runnable() {
+            @Override
+            public void run() {
+                updateAccelerationSpectrum(finalWindowSize, finalHopSize);
+            }
+        });
+    }
+
+    private synchronized void updateAccelerationSpectrum(int windowSize, int hopSize) {
+        SpectralFeatureExtractor oldExtractor = spectralFeatureExtractor;
+        if (oldExtractor == null ? windowSize <= 0
+                : oldExtractor.getWindowSize() == windowSize && oldExtractor.getHopSize() == hopSize) {
+            return;
+        }
+        spectralFeatureExtractor = windowSize > 0
+                ? new SpectralFeatureExtractor(windowSize, hopSize) : null;
+    }
+
+    /**
+     * Aggregate acceleration over fixed windows instead of sending each sample. Each window is
+     * summarized in a single PhoneAccelerationWindow record. If the window length changes, the
+     * current window is sent on the sensor thread before the next sample is added.
+     * @param length window length in seconds, or 0 to send raw acceleration samples.
+     */
+    public void setAccelerationWindow(final double length) {
+        runOnSensorThread(new Runnable() {
+            @Override
+            public void run() {
+                updateAccelerationWindow(length);
+            }
+        });
+    }
+
+    private synchronized void updateAccelerationWindow(double length) {
+        AccelerationAggregator oldAggregator = accelerationAggregator;
+        if (oldAggregator == null ? length <= 0d : oldAggregator.getWindowLength() == length) {
+            return;
+        }
+        accelerationAggregator = length > 0d ? new AccelerationAggregator(length) : null;
+        if (oldAggregator != null) {
+            synchronized (oldAggregator) {
+                if (!oldAggregator.isEmpty()) {
+                    sendAccelerationWindow(
+                            oldAggregator.createRecord(System.currentTimeMillis() / 1000d));
+                }
+            }
+        }
+    }
+
+    private void sendAccelerationWindow(PhoneAccelerationWindow window) {
+        send(accelerationWindowTable, window);
+        // latency from the end of the window
+        accelerationWindowLatency.recordLatency(
+                window.getTime() + window.getWindowLength(), sensorTimeNow());
+    }
+
+    /**
+     * Buffer acceleration samples in primitive arrays before sending them to the data cache. This
+     * avoids allocating a record for each sensor event. The buffer is sent when it is full or when
+     * the first sample in it is older than given age. If the settings change, any previous buffer
+     * is sent on the sensor thread before the next sample is added.
+     * @param size number of samples to buffer, or 0 to send each sample directly.
+     * @param maxAge maximum time in seconds that a sample is kept in the buffer.
+     */
+    public void setAccelerationBuffer(final int size, final double maxAge) {
+        runOnSensorThread(new Runnable() {
+            @Override
+            public void run() {
+                updateAccelerationBuffer(size, maxAge);
+            }
+        });
+    }
+
+    private synchronized void updateAccelerationBuffer(int size, double maxAge) {
+        AccelerationBuffer oldBuffer = accelerationBuffer;
+        if (oldBuffer == null ? size <= 0
+                : oldBuffer.capacity() == size && oldBuffer.getMaxAge() == maxAge) {
+            return;
+        }
+        accelerationBuffer = size > 0 ? new AccelerationBuffer(size, maxAge) : null;
+        if (oldBuffer != null) {
+            synchronized (oldBuffer) {
+                flushAccelerationBuffer(oldBuffer);
+            }
+        }
+    }
+
+    /**
+     * Send buffered acceleration as PhoneAccelerationBlock records instead of one
+     * PhoneAcceleration record per sample. Each time the buffer is drained, its samples are sent
+     * as a single block. This has no effect if acceleration is not buffered. If the encoding
+     * changes, the current buffer is sent on the sensor thread with the previous encoding.
+     * @param enabled whether to send buffered samples as blocks.
+     * @param quantizationStep acceleration in g per quantized unit, or 0 to send floats.
+     */
+    public void setAccelerationBlockEncoding(final boolean enabled, final float quantizationStep) {
+        runOnSensorThread(new Runnable() {
+            @Override
+            public void run() {
+                updateAccelerationBlockEncoding(enabled, quantizationStep);
+            }
+        });
+    }
+
+    private synchronized void updateAccelerationBlockEncoding(boolean enabled, float quantizationStep) {
+        AccelerationBlockEncoder oldEncoder = accelerationBlockEncoder;
+        if (oldEncoder == null ? !enabled
+                : enabled && oldEncoder.getQuantizationStep() == quantizationStep) {
+            return;
+        }
+        AccelerationBlockEncoder newEncoder = enabled
+                ? new AccelerationBlockEncoder(quantizationStep) : null;
+        AccelerationBuffer buffer = accelerationBuffer;
+        if (buffer != null) {
+            synchronized (buffer) {
+                flushAccelerationBuffer(buffer);
+                accelerationBlockEncoder = newEncoder;
+            }
+        } else {
+            accelerationBlockEncoder = newEncoder;
+        }
+    }
+
+    /**
+     * Run a change to the acceleration pipeline on the sensor thread, after any sensor events
+     * that are already queued. Before the manager is started and after it is closed, there is no
+     * sensor thread and the change is run directly.
+     */
+    private synchronized void runOnSensorThread(Runnable change) {
+        if (handler != null) {
+            handler.post(change);
+        } else {
+            change.run();
+        }
+    }
+
+    /** Send what remains in the acceleration pipeline and disable it. */
+    private void closeAccelerationPipeline() {
+        setAccelerationBuffer(0, 0d);
+        setAccelerationWindow(0d);
+    }
+
+    /**
+     * Flush the acceleration buffer after given age, in case no later sample drains it. This is
+     * called while synchronized on the buffer, so it does not lock the manager.
+     */
+    private void scheduleAccelerationBufferFlush(double maxAge) {
+        Handler localHandler = handler;
+        if (localHandler != null) {
+            localHandler.postDelayed(accelerationBufferFlusher, (long) Math.ceil(maxAge * 1000d));
+        }
+    }
 
-        send(accelerationTable, new PhoneAcceleration(time, timeReceived, x, y, z));
+    /** Send all samples in the buffer to the data cache. Call while synchronized on the buffer. */
+    private void flushAccelerationBuffer(AccelerationBuffer buffer) {
+        if (buffer.isEmpty()) {
+            return;
+        }
+        Handler localHandler = handler;
+        if (localHandler != null) {
+            localHandler.removeCallbacks(accelerationBufferFlusher);
+        }
+        AccelerationBlockEncoder encoder = accelerationBlockEncoder;
+        LatencyHistogram latency;
+        if (encoder != null) {
+            for (PhoneAccelerationBlock block : encoder.encode(buffer)) {
+                send(accelerationBlockTable, block);
+            }
+            latency = accelerationBlockLatency;
+        } else {
+            for (int i = 0; i < buffer.size(); i++) {
+                send(accelerationTable, new PhoneAcceleration(
+                        buffer.getTime(i), buffer.getTimeReceived(i),
+                        buffer.getX(i), buffer.getY(i), buffer.getZ(i)));
+            }
+            latency = accelerationLatency;
+        }
+        // latency of each sample, including the time spent in the buffer
+        double now = sensorTimeNow();
+        for (int i = 0; i < buffer.size(); i++) {
+            latency.recordLatency(buffer.getTime(i), now);
+        }
+        buffer.clear();
     }
 
     public void processLight(SensorEvent event) {
@@ -171,10 +989,51 @@ class PhoneSensorManager extends AbstractDeviceManager<PhoneSensorService, Phone
         
         double timeReceived = System.currentTimeMillis() / 1000d;
         
-        // nanoseconds uptime to seconds utc
-        double time = ( timeReceived - (System.nanoTime() - event.timestamp) / 1_000_000_000d );      
+        // nanoseconds elapsed realtime to seconds utc
+        double time = clockOffset.toUtcSeconds(event.timestamp);
+
+        ChangeDetector detector = lightChangeDetector;
+        if (detector != null && !detector.updateIfChanged(time, lightValue)) {
+            return;
+        }
 
         send(lightTable, new PhoneLight(time, timeReceived, lightValue));
+        lightLatency.recordLatency(time, sensorTimeNow());
+    }
+
+    /**
+     * Only send light values that changed compared to the last light value sent. A value has
+     * changed if it exceeds both the absolute and relative deadband, or if no value was sent for
+     * the maximum silence.
+     * @param absoluteDeadband minimum absolute change in lux.
+     * @param relativeDeadband minimum change relative to the last value.
+     * @param maxSilence maximum time in seconds between light values, or 0 to send all values.
+     */
+    public void setLightChangeDetection(float absoluteDeadband, float relativeDeadband, double maxSilence) {
+        lightChangeDetector = maxSilence > 0d
+                ? new ChangeDetector(absoluteDeadband, relativeDeadband, maxSilence)
+                : null;
+    }
+
+    /**
+     * Only send battery status if the plug state or battery status changed, or if the battery
+     * level changed more than the deadband, or if no status was sent for the maximum silence.
+     * @param deadband minimum change in battery level, as a fraction of a full battery.
+     * @param maxSilence maximum time in seconds between battery status, or 0 to send all status
+     *                   updates.
+     */
+    public void setBatteryChangeDetection(float deadband, double maxSilence) {
+        batteryChangeDetector = maxSilence > 0d
+                ? new ChangeDetector(deadband, 0f, maxSilence)
+                : null;
+    }
+
+    /**
+     * Change in offset between the sensor clock and UTC, measured at the last synchronization.
+     * @return drift in nanoseconds
+     */
+    public long getClockDrift() {
+        return clockOffset.getDrift();
     }
 
     public void processBatteryStatus(Intent intent) {
@@ -193,30 +1052,196 @@ class PhoneSensorManager extends AbstractDeviceManager<PhoneSensorService, Phone
         getState().setBatteryLevel(batteryPct);
 
         double time = System.currentTimeMillis() / 1000d;
+
+        boolean isStatusChanged = isPlugged != lastBatteryPlugged || batteryStatus != lastBatteryStatus;
+        lastBatteryPlugged = isPlugged;
+        lastBatteryStatus = batteryStatus;
+        ChangeDetector detector = batteryChangeDetector;
+        if (detector != null) {
+            if (isStatusChanged) {
+                detector.update(time, batteryPct);
+            } else if (!detector.updateIfChanged(time, batteryPct)) {
+                return;
+            }
+        }
+
         trySend(batteryTopic, 0L, new PhoneBatteryLevel(
                 time, time, batteryPct, isPlugged, batteryStatus));
     }
 
     public void processInteractionState(Intent intent) {
-        PhoneLockState state;
+        double timestamp = System.currentTimeMillis() / 1000d;
 
+        if (intent.getAction().equals(Intent.ACTION_SCREEN_ON)) {
+            // only tracked in screen sessions, there is no lock state for it
+            updateScreenSession(timestamp, ScreenSessionTracker.State.ON);
+            return;
+        }
+
+        PhoneLockState state;
         if (intent.getAction().equals(Intent.ACTION_SCREEN_OFF)) {
             state = PhoneLockState.STANDBY;
+            updateScreenSession(timestamp, ScreenSessionTracker.State.OFF);
         } else {
             state = PhoneLockState.UNLOCKED;
+            updateScreenSession(timestamp, ScreenSessionTracker.State.UNLOCKED);
         }
 
-        double timestamp = System.currentTimeMillis() / 1000d;
         PhoneUserInteraction value = new PhoneUserInteraction(
                 timestamp, timestamp, state);
         send(userInteractionTable, value);
 
-        logger.info("Interaction State: {} {}", timestamp, state);
+        if (eventLogger.shouldLog()) {
+            eventLogger.log("Interaction State: {} {}", timestamp, state);
+        }
+    }
+
+    /**
+     * Summarize screen sessions over fixed intervals, in addition to sending each change in
+     * lock state. Summaries are sent on PhoneInteractionSummary records when an interval ends.
+     * @param interval interval length in seconds, or 0 to disable summaries.
+     */
+    public synchronized void setInteractionSummaryInterval(double interval) {
+        ScreenSessionTracker oldTracker = screenSessionTracker;
+        if (oldTracker == null ? interval <= 0d : oldTracker.getInterval() == interval) {
+            return;
+        }
+        screenSessionTracker = interval > 0d ? new ScreenSessionTracker(interval) : null;
+        if (handler != null) {
+            handler.removeCallbacks(interactionSummaryReporter);
+            startScreenSessionTracker();
+        }
+    }
+
+    /** Start tracking screen sessions from the current screen state, if enabled. */
+    private synchronized void startScreenSessionTracker() {
+        ScreenSessionTracker tracker = screenSessionTracker;
+        if (tracker == null) {
+            return;
+        }
+        synchronized (tracker) {
+            tracker.start(System.currentTimeMillis() / 1000d, readScreenState());
+        }
+        scheduleInteractionSummary();
+    }
+
+    private synchronized void scheduleInteractionSummary() {
+        ScreenSessionTracker tracker = screenSessionTracker;
+        if (handler == null || tracker == null) {
+            return;
+        }
+        double intervalEnd;
+        synchronized (tracker) {
+            intervalEnd = tracker.getIntervalEnd();
+        }
+        long delay = (long) Math.ceil(intervalEnd * 1000d) - System.currentTimeMillis();
+        handler.postDelayed(interactionSummaryReporter, Math.max(delay, 0L));
+    }
+
+    /** Current screen state, as far as it can be determined. */
+    private ScreenSessionTracker.State readScreenState() {
+        PowerManager powerManager = (PowerManager) getService().getSystemService(Context.POWER_SERVICE);
+        if (powerManager == null) {
+            return ScreenSessionTracker.State.OFF;
+        }
+        boolean isScreenOn;
+        if (Build.VERSION.SDK_INT >= Build.VERSION_CODES.KITKAT_WATCH) {
+            isScreenOn = powerManager.isInteractive();
+        } else {
+            //noinspection deprecation
+            isScreenOn = powerManager.isScreenOn();
+        }
+        if (!isScreenOn) {
+            return ScreenSessionTracker.State.OFF;
+        }
+        KeyguardManager keyguardManager = (KeyguardManager) getService().getSystemService(Context.KEYGUARD_SERVICE);
+        if (keyguardManager != null && keyguardManager.isKeyguardLocked()) {
+            return ScreenSessionTracker.State.ON;
+        } else {
+            return ScreenSessionTracker.State.UNLOCKED;
+        }
+    }
+
+    /**
+     * Send the summaries of screen session intervals that ended before given time, and update
+     * the screen state.
+     * @param time current time in seconds UTC.
+     * @param state new screen state, or null to keep the current state.
+     */
+    private void updateScreenSession(double time, ScreenSessionTracker.State state) {
+        ScreenSessionTracker tracker = screenSessionTracker;
+        if (tracker == null) {
+            return;
+        }
+        synchronized (tracker) {
+            if (!tracker.isStarted()) {
+                return;
+            }
+            PhoneInteractionSummary summary;
+            while ((summary = tracker.poll(time)) != null) {
+                send(interactionSummaryTable, summary);
+                interactionSummaryLatency.recordLatency(
+                        summary.getTime() + summary.getWindowLength(),
+                        System.currentTimeMillis() / 1000d);
+            }
+            if (state != null) {
+                tracker.update(time, state);
+            }
+        }
+    }
+
+    /** Current time in seconds UTC, on the same clock as the times of sensor events. */
+    private double sensorTimeNow() {
+        return clockOffset.toUtcSeconds(SystemClock.elapsedRealtimeNanos());
+    }
+
+    /**
+     * Latencies from the time of each measurement to the time that its record was added to the
+     * data cache, per topic.
+     */
+    LatencyRecorder getSendLatencies() {
+        return sendLatencies;
     }
 
     @Override
     public void close() throws IOException {
-        sensorManager.unregisterListener(this);
+        boolean wasStarted;
+        synchronized (this) {
+            wasStarted = handler != null;
+            if (wasStarted) {
+                sensorManager.unregisterListener(this);
+                Sensor significantMotion = sensorManager.getDefaultSensor(Sensor.TYPE_SIGNIFICANT_MOTION);
+                if (significantMotion != null) {
+                    sensorManager.cancelTriggerSensor(significantMotionListener, significantMotion);
+                }
+                getService().unregisterReceiver(batteryLevelReceiver);
+                getService().unregisterReceiver(screenStateReceiver);
+                getService().unregisterReceiver(timeChangedReceiver);
+                handler.removeCallbacks(sensorHealthReporter);
+                handler.removeCallbacks(interactionSummaryReporter);
+                handler.removeCallbacks(accelerationBufferFlusher);
+                // processed after the sensor events that are still queued
+                handler.post(new Runnable() {
+                    @Override
+                    public void run() {
+                        closeAccelerationPipeline();
+                    }
+                });
+                handler = null;
+                handlerThread.quitSafely();
+            }
+        }
+        if (wasStarted) {
+            try {
+                handlerThread.join(HANDLER_QUIT_TIMEOUT);
+            } catch (InterruptedException ex) {
+                logger.warn("Interrupted while closing phone sensors");
+                Thread.currentThread().interrupt();
+            }
+        } else {
+            closeAccelerationPipeline();
+        }
+        sendLatencies.log(logger);
         super.close();
     }
 }
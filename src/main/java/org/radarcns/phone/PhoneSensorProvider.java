@@ -16,8 +16,10 @@
 
 package org.radarcns.phone;
 
+import android.os.Bundle;
 import android.os.Parcelable;
 
+import org.radarcns.android.RadarConfiguration;
 import org.radarcns.android.device.DeviceServiceProvider;
 
 import java.util.Arrays;
@@ -28,6 +30,53 @@ import static android.Manifest.permission.READ_SMS;
 import static android.Manifest.permission.WRITE_EXTERNAL_STORAGE;
 
 public class PhoneSensorProvider extends DeviceServiceProvider<PhoneState> {
+    /** Sampling period of the accelerometer in milliseconds. */
+    public static final String PHONE_ACCELERATION_INTERVAL_KEY = "phone_acceleration_interval";
+    /** Sampling period of the light sensor in milliseconds. */
+    public static final String PHONE_LIGHT_INTERVAL_KEY = "phone_light_interval";
+    /** Maximum report latency of batched sensor events in milliseconds, 0 to disable batching. */
+    public static final String PHONE_SENSOR_BATCH_LATENCY_KEY = "phone_sensor_batch_latency";
+    /** Number of acceleration samples to buffer before sending, 0 to disable buffering. */
+    public static final String PHONE_ACCELERATION_BUFFER_SIZE_KEY = "phone_acceleration_buffer_size";
+    /** Number of acceleration samples to send as a single block, 0 to disable blocks. */
+    public static final String PHONE_ACCELERATION_BLOCK_SIZE_KEY = "phone_acceleration_block_size";
+    /** Quantization step of acceleration blocks in g, 0 to send floats. */
+    public static final String PHONE_ACCELERATION_QUANTIZATION_KEY = "phone_acceleration_quantization";
+    /** Length of acceleration aggregation windows in seconds, 0 to send raw acceleration. */
+    public static final String PHONE_ACCELERATION_WINDOW_KEY = "phone_acceleration_window";
+    /** Number of acceleration samples per spectral feature window, 0 to disable. */
+    public static final String PHONE_ACCELERATION_SPECTRUM_WINDOW_KEY = "phone_acceleration_spectrum_window";
+    /** Number of acceleration samples between spectral feature windows, 0 for half a window. */
+    public static final String PHONE_ACCELERATION_SPECTRUM_HOP_KEY = "phone_acceleration_spectrum_hop";
+    /** Interval of linear acceleration and orientation records in seconds, 0 to disable. */
+    public static final String PHONE_SENSOR_FUSION_INTERVAL_KEY = "phone_sensor_fusion_interval";
+    /** Sampling period of the accelerometer in milliseconds while the phone is still, 0 to disable. */
+    public static final String PHONE_ACCELERATION_STILL_INTERVAL_KEY = "phone_acceleration_still_interval";
+    /** Time in seconds that the phone must be still before the accelerometer is slowed down. */
+    public static final String PHONE_ACCELERATION_STILL_DURATION_KEY = "phone_acceleration_still_duration";
+    /** Interval of sensor health reports in seconds, 0 to disable reports. */
+    public static final String PHONE_SENSOR_HEALTH_INTERVAL_KEY = "phone_sensor_health_interval";
+    /** Interval of screen session summaries in seconds, 0 to disable. */
+    public static final String PHONE_INTERACTION_SUMMARY_INTERVAL_KEY = "phone_interaction_summary_interval";
+    /** Minimum absolute change in lux before a light value is sent. */
+    public static final String PHONE_LIGHT_DEADBAND_KEY = "phone_light_deadband";
+    /** Minimum change in light relative to the last value before a light value is sent. */
+    public static final String PHONE_LIGHT_RELATIVE_DEADBAND_KEY = "phone_light_relative_deadband";
+    /** Maximum time between sent light values in seconds, 0 to send all light values. */
+    public static final String PHONE_LIGHT_MAX_SILENCE_KEY = "phone_light_max_silence";
+    /** Minimum change in battery level, as a fraction, before a battery status is sent. */
+    public static final String PHONE_BATTERY_DEADBAND_KEY = "phone_battery_deadband";
+    /** Maximum time between sent battery status in seconds, 0 to send all battery updates. */
+    public static final String PHONE_BATTERY_MAX_SILENCE_KEY = "phone_battery_max_silence";
+    /**
+     * Battery level, as a fraction, below which sensor and location sampling periods are
+     * increased, 0 to disable.
+     */
+    public static final String PHONE_BATTERY_SAVING_LEVEL_KEY = "phone_battery_saving_level";
+
+    static final int PHONE_SENSOR_INTERVAL_DEFAULT = PhoneSensorManager.SENSOR_DELAY_DEFAULT / 1000;
+    static final int PHONE_SENSOR_BATCH_LATENCY_DEFAULT = PhoneSensorManager.SENSOR_MAX_REPORT_LATENCY_DEFAULT / 1000;
+
     @Override
     public Class<?> getServiceClass() {
         return PhoneSensorService.class;
@@ -43,6 +92,50 @@ public class PhoneSensorProvider extends DeviceServiceProvider<PhoneState> {
         return getActivity().getString(R.string.phoneServiceDisplayName);
     }
 
+    @Override
+    protected void configure(Bundle bundle) {
+        super.configure(bundle);
+        RadarConfiguration config = getConfig();
+        bundle.putInt(PHONE_ACCELERATION_INTERVAL_KEY, config.getInt(
+                PHONE_ACCELERATION_INTERVAL_KEY, PHONE_SENSOR_INTERVAL_DEFAULT));
+        bundle.putInt(PHONE_LIGHT_INTERVAL_KEY, config.getInt(
+                PHONE_LIGHT_INTERVAL_KEY, PHONE_SENSOR_INTERVAL_DEFAULT));
+        bundle.putInt(PHONE_SENSOR_BATCH_LATENCY_KEY, config.getInt(
+                PHONE_SENSOR_BATCH_LATENCY_KEY, PHONE_SENSOR_BATCH_LATENCY_DEFAULT));
+        bundle.putInt(PHONE_ACCELERATION_BUFFER_SIZE_KEY, config.getInt(
+                PHONE_ACCELERATION_BUFFER_SIZE_KEY, PhoneSensorManager.ACCELERATION_BUFFER_SIZE_DEFAULT));
+        bundle.putInt(PHONE_ACCELERATION_BLOCK_SIZE_KEY, config.getInt(
+                PHONE_ACCELERATION_BLOCK_SIZE_KEY, PhoneSensorManager.ACCELERATION_BLOCK_SIZE_DEFAULT));
+        bundle.putFloat(PHONE_ACCELERATION_QUANTIZATION_KEY, config.getFloat(
+                PHONE_ACCELERATION_QUANTIZATION_KEY, PhoneSensorManager.ACCELERATION_QUANTIZATION_DEFAULT));
+        bundle.putFloat(PHONE_ACCELERATION_WINDOW_KEY, config.getFloat(
+                PHONE_ACCELERATION_WINDOW_KEY, (float) PhoneSensorManager.ACCELERATION_WINDOW_DEFAULT));
+        bundle.putInt(PHONE_ACCELERATION_SPECTRUM_WINDOW_KEY, config.getInt(
+                PHONE_ACCELERATION_SPECTRUM_WINDOW_KEY, PhoneSensorManager.ACCELERATION_SPECTRUM_WINDOW_DEFAULT));
+        bundle.putInt(PHONE_ACCELERATION_SPECTRUM_HOP_KEY, config.getInt(
+                PHONE_ACCELERATION_SPECTRUM_HOP_KEY, PhoneSensorManager.ACCELERATION_SPECTRUM_HOP_DEFAULT));
+        bundle.putFloat(PHONE_SENSOR_FUSION_INTERVAL_KEY, config.getFloat(
+                PHONE_SENSOR_FUSION_INTERVAL_KEY, (float) PhoneSensorManager.SENSOR_FUSION_INTERVAL_DEFAULT));
+        bundle.putInt(PHONE_ACCELERATION_STILL_INTERVAL_KEY, config.getInt(
+                PHONE_ACCELERATION_STILL_INTERVAL_KEY, PhoneSensorManager.ACCELERATION_STILL_DELAY_DEFAULT / 1000));
+        bundle.putFloat(PHONE_ACCELERATION_STILL_DURATION_KEY, config.getFloat(
+                PHONE_ACCELERATION_STILL_DURATION_KEY, (float) PhoneSensorManager.ACCELERATION_STILL_DURATION_DEFAULT));
+        bundle.putLong(PHONE_SENSOR_HEALTH_INTERVAL_KEY, config.getLong(
+                PHONE_SENSOR_HEALTH_INTERVAL_KEY, PhoneSensorManager.SENSOR_HEALTH_INTERVAL_DEFAULT / 1000L));
+        bundle.putLong(PHONE_INTERACTION_SUMMARY_INTERVAL_KEY, config.getLong(
+                PHONE_INTERACTION_SUMMARY_INTERVAL_KEY, (long) PhoneSensorManager.INTERACTION_SUMMARY_INTERVAL_DEFAULT));
+        bundle.putFloat(PHONE_LIGHT_DEADBAND_KEY, config.getFloat(PHONE_LIGHT_DEADBAND_KEY, 0f));
+        bundle.putFloat(PHONE_LIGHT_RELATIVE_DEADBAND_KEY, config.getFloat(
+                PHONE_LIGHT_RELATIVE_DEADBAND_KEY, 0f));
+        bundle.putFloat(PHONE_LIGHT_MAX_SILENCE_KEY, config.getFloat(
+                PHONE_LIGHT_MAX_SILENCE_KEY, (float) PhoneSensorManager.CHANGE_MAX_SILENCE_DEFAULT));
+        bundle.putFloat(PHONE_BATTERY_DEADBAND_KEY, config.getFloat(PHONE_BATTERY_DEADBAND_KEY, 0f));
+        bundle.putFloat(PHONE_BATTERY_MAX_SILENCE_KEY, config.getFloat(
+                PHONE_BATTERY_MAX_SILENCE_KEY, (float) PhoneSensorManager.CHANGE_MAX_SILENCE_DEFAULT));
+        bundle.putFloat(PHONE_BATTERY_SAVING_LEVEL_KEY, config.getFloat(
+                PHONE_BATTERY_SAVING_LEVEL_KEY, SamplingGovernor.START_LEVEL_DEFAULT));
+    }
+
     @Override
     public List<String> needsPermissions() {
         return Arrays.asList(WRITE_EXTERNAL_STORAGE, READ_CALL_LOG, READ_SMS);
@@ -16,6 +16,10 @@
 
 package org.radarcns.phone;
 
+import android.hardware.Sensor;
+import android.os.Bundle;
+import android.util.SparseIntArray;
+
 import org.apache.avro.specific.SpecificRecord;
 import org.radarcns.android.device.BaseDeviceState;
 import org.radarcns.android.device.DeviceManager;
@@ -25,10 +29,35 @@ import org.radarcns.android.util.PersistentStorage;
 import org.radarcns.key.MeasurementKey;
 import org.radarcns.topic.AvroTopic;
 
+import java.io.FileDescriptor;
+import java.io.PrintWriter;
 import java.util.Arrays;
 import java.util.List;
+import java.util.Locale;
 
 import static org.radarcns.android.RadarConfiguration.SOURCE_ID_KEY;
+import static org.radarcns.phone.PhoneSensorProvider.PHONE_ACCELERATION_BLOCK_SIZE_KEY;
+import static org.radarcns.phone.PhoneSensorProvider.PHONE_ACCELERATION_BUFFER_SIZE_KEY;
+import static org.radarcns.phone.PhoneSensorProvider.PHONE_ACCELERATION_INTERVAL_KEY;
+import static org.radarcns.phone.PhoneSensorProvider.PHONE_ACCELERATION_QUANTIZATION_KEY;
+import static org.radarcns.phone.PhoneSensorProvider.PHONE_ACCELERATION_SPECTRUM_HOP_KEY;
+import static org.radarcns.phone.PhoneSensorProvider.PHONE_ACCELERATION_SPECTRUM_WINDOW_KEY;
+import static org.radarcns.phone.PhoneSensorProvider.PHONE_ACCELERATION_STILL_DURATION_KEY;
+import static org.radarcns.phone.PhoneSensorProvider.PHONE_ACCELERATION_STILL_INTERVAL_KEY;
+import static org.radarcns.phone.PhoneSensorProvider.PHONE_ACCELERATION_WINDOW_KEY;
+import static org.radarcns.phone.PhoneSensorProvider.PHONE_BATTERY_DEADBAND_KEY;
+import static org.radarcns.phone.PhoneSensorProvider.PHONE_BATTERY_MAX_SILENCE_KEY;
+import static org.radarcns.phone.PhoneSensorProvider.PHONE_BATTERY_SAVING_LEVEL_KEY;
+import static org.radarcns.phone.PhoneSensorProvider.PHONE_INTERACTION_SUMMARY_INTERVAL_KEY;
+import static org.radarcns.phone.PhoneSensorProvider.PHONE_LIGHT_DEADBAND_KEY;
+import static org.radarcns.phone.PhoneSensorProvider.PHONE_LIGHT_INTERVAL_KEY;
+import static org.radarcns.phone.PhoneSensorProvider.PHONE_LIGHT_MAX_SILENCE_KEY;
+import static org.radarcns.phone.PhoneSensorProvider.PHONE_LIGHT_RELATIVE_DEADBAND_KEY;
+import static org.radarcns.phone.PhoneSensorProvider.PHONE_SENSOR_BATCH_LATENCY_KEY;
+import static org.radarcns.phone.PhoneSensorProvider.PHONE_SENSOR_BATCH_LATENCY_DEFAULT;
+import static org.radarcns.phone.PhoneSensorProvider.PHONE_SENSOR_FUSION_INTERVAL_KEY;
+import static org.radarcns.phone.PhoneSensorProvider.PHONE_SENSOR_HEALTH_INTERVAL_KEY;
+import static org.radarcns.phone.PhoneSensorProvider.PHONE_SENSOR_INTERVAL_DEFAULT;
 
 /**
  * A service that manages the phone sensor manager and a TableDataHandler to send store the data of
@@ -36,10 +65,102 @@ import static org.radarcns.android.RadarConfiguration.SOURCE_ID_KEY;
  */
 public class PhoneSensorService extends DeviceService {
     private String sourceId;
+    private final SparseIntArray sensorDelays = new SparseIntArray();
+    private int batchLatency = PHONE_SENSOR_BATCH_LATENCY_DEFAULT;
+    private int accelerationBufferSize = PhoneSensorManager.ACCELERATION_BUFFER_SIZE_DEFAULT;
+    private int accelerationBlockSize = PhoneSensorManager.ACCELERATION_BLOCK_SIZE_DEFAULT;
+    private float accelerationQuantization = PhoneSensorManager.ACCELERATION_QUANTIZATION_DEFAULT;
+    private double accelerationWindow = PhoneSensorManager.ACCELERATION_WINDOW_DEFAULT;
+    private int accelerationSpectrumWindow = PhoneSensorManager.ACCELERATION_SPECTRUM_WINDOW_DEFAULT;
+    private int accelerationSpectrumHop = PhoneSensorManager.ACCELERATION_SPECTRUM_HOP_DEFAULT;
+    private double sensorFusionInterval = PhoneSensorManager.SENSOR_FUSION_INTERVAL_DEFAULT;
+    private int accelerationStillDelay = PhoneSensorManager.ACCELERATION_STILL_DELAY_DEFAULT;
+    private double accelerationStillDuration = PhoneSensorManager.ACCELERATION_STILL_DURATION_DEFAULT;
+    private long sensorHealthInterval = PhoneSensorManager.SENSOR_HEALTH_INTERVAL_DEFAULT;
+    private double interactionSummaryInterval = PhoneSensorManager.INTERACTION_SUMMARY_INTERVAL_DEFAULT;
+    private float lightDeadband = 0f;
+    private float lightRelativeDeadband = 0f;
+    private double lightMaxSilence = PhoneSensorManager.CHANGE_MAX_SILENCE_DEFAULT;
+    private float batteryDeadband = 0f;
+    private double batteryMaxSilence = PhoneSensorManager.CHANGE_MAX_SILENCE_DEFAULT;
+    private float batterySavingLevel = SamplingGovernor.START_LEVEL_DEFAULT;
 
     @Override
     protected DeviceManager createDeviceManager() {
-        return new PhoneSensorManager(this, getDataHandler(), getUserId(), getSourceId());
+        PhoneSensorManager manager = new PhoneSensorManager(this, getDataHandler(), getUserId(), getSourceId());
+        configureManager(manager);
+        return manager;
+    }
+
+    @Override
+    protected void onInvocation(Bundle bundle) {
+        super.onInvocation(bundle);
+        int accelerationDelay = 1000 * bundle.getInt(
+                PHONE_ACCELERATION_INTERVAL_KEY, PHONE_SENSOR_INTERVAL_DEFAULT);
+        sensorDelays.put(Sensor.TYPE_ACCELEROMETER, accelerationDelay);
+        // sensor fusion inputs are sampled along with the accelerometer
+        sensorDelays.put(Sensor.TYPE_GYROSCOPE, accelerationDelay);
+        sensorDelays.put(Sensor.TYPE_MAGNETIC_FIELD, accelerationDelay);
+        sensorDelays.put(Sensor.TYPE_LIGHT, 1000 * bundle.getInt(
+                PHONE_LIGHT_INTERVAL_KEY, PHONE_SENSOR_INTERVAL_DEFAULT));
+        batchLatency = 1000 * bundle.getInt(
+                PHONE_SENSOR_BATCH_LATENCY_KEY, PHONE_SENSOR_BATCH_LATENCY_DEFAULT);
+        accelerationBufferSize = bundle.getInt(
+                PHONE_ACCELERATION_BUFFER_SIZE_KEY, PhoneSensorManager.ACCELERATION_BUFFER_SIZE_DEFAULT);
+        accelerationBlockSize = bundle.getInt(
+                PHONE_ACCELERATION_BLOCK_SIZE_KEY, PhoneSensorManager.ACCELERATION_BLOCK_SIZE_DEFAULT);
+        accelerationQuantization = bundle.getFloat(
+                PHONE_ACCELERATION_QUANTIZATION_KEY, PhoneSensorManager.ACCELERATION_QUANTIZATION_DEFAULT);
+        accelerationWindow = bundle.getFloat(
+                PHONE_ACCELERATION_WINDOW_KEY, (float) PhoneSensorManager.ACCELERATION_WINDOW_DEFAULT);
+        accelerationSpectrumWindow = bundle.getInt(PHONE_ACCELERATION_SPECTRUM_WINDOW_KEY,
+                PhoneSensorManager.ACCELERATION_SPECTRUM_WINDOW_DEFAULT);
+        accelerationSpectrumHop = bundle.getInt(PHONE_ACCELERATION_SPECTRUM_HOP_KEY,
+                PhoneSensorManager.ACCELERATION_SPECTRUM_HOP_DEFAULT);
+        sensorFusionInterval = bundle.getFloat(PHONE_SENSOR_FUSION_INTERVAL_KEY,
+                (float) PhoneSensorManager.SENSOR_FUSION_INTERVAL_DEFAULT);
+        accelerationStillDelay = 1000 * bundle.getInt(PHONE_ACCELERATION_STILL_INTERVAL_KEY,
+                PhoneSensorManager.ACCELERATION_STILL_DELAY_DEFAULT / 1000);
+        accelerationStillDuration = bundle.getFloat(PHONE_ACCELERATION_STILL_DURATION_KEY,
+                (float) PhoneSensorManager.ACCELERATION_STILL_DURATION_DEFAULT);
+        sensorHealthInterval = 1000L * bundle.getLong(PHONE_SENSOR_HEALTH_INTERVAL_KEY,
+                PhoneSensorManager.SENSOR_HEALTH_INTERVAL_DEFAULT / 1000L);
+        interactionSummaryInterval = bundle.getLong(PHONE_INTERACTION_SUMMARY_INTERVAL_KEY,
+                (long) PhoneSensorManager.INTERACTION_SUMMARY_INTERVAL_DEFAULT);
+        lightDeadband = bundle.getFloat(PHONE_LIGHT_DEADBAND_KEY, 0f);
+        lightRelativeDeadband = bundle.getFloat(PHONE_LIGHT_RELATIVE_DEADBAND_KEY, 0f);
+        lightMaxSilence = bundle.getFloat(
+                PHONE_LIGHT_MAX_SILENCE_KEY, (float) PhoneSensorManager.CHANGE_MAX_SILENCE_DEFAULT);
+        batteryDeadband = bundle.getFloat(PHONE_BATTERY_DEADBAND_KEY, 0f);
+        batteryMaxSilence = bundle.getFloat(
+                PHONE_BATTERY_MAX_SILENCE_KEY, (float) PhoneSensorManager.CHANGE_MAX_SILENCE_DEFAULT);
+        batterySavingLevel = bundle.getFloat(
+                PHONE_BATTERY_SAVING_LEVEL_KEY, SamplingGovernor.START_LEVEL_DEFAULT);
+
+        // apply the new configuration to a running manager
+        PhoneSensorManager manager = (PhoneSensorManager) getDeviceManager();
+        if (manager != null) {
+            configureManager(manager);
+        }
+    }
+
+    private void configureManager(PhoneSensorManager manager) {
+        manager.setSensorDelays(sensorDelays);
+        manager.setMaxReportLatency(batchLatency);
+        // blocks are drained from the acceleration buffer, so they set its size
+        manager.setAccelerationBlockEncoding(accelerationBlockSize > 0, accelerationQuantization);
+        manager.setAccelerationBuffer(
+                accelerationBlockSize > 0 ? accelerationBlockSize : accelerationBufferSize,
+                PhoneSensorManager.ACCELERATION_BUFFER_MAX_AGE_DEFAULT);
+        manager.setAccelerationWindow(accelerationWindow);
+        manager.setAccelerationSpectrum(accelerationSpectrumWindow, accelerationSpectrumHop);
+        manager.setSensorFusion(sensorFusionInterval);
+        manager.setAdaptiveSampling(accelerationStillDelay, accelerationStillDuration);
+        manager.setSensorHealthInterval(sensorHealthInterval);
+        manager.setInteractionSummaryInterval(interactionSummaryInterval);
+        manager.setLightChangeDetection(lightDeadband, lightRelativeDeadband, lightMaxSilence);
+        manager.setBatteryChangeDetection(batteryDeadband, batteryMaxSilence);
+        manager.setBatterySavingLevel(batterySavingLevel);
     }
 
     @Override
@@ -49,6 +170,23 @@ public class PhoneSensorService extends DeviceService {
         return newStatus;
     }
 
+    /**
+     * Print the send latencies per topic and the sensor clock drift, with
+     * {@code adb shell dumpsys activity service org.radarcns.phone.PhoneSensorService}. Add the
+     * argument {@code reset} to remove the latencies after printing them.
+     */
+    @Override
+    protected void dump(FileDescriptor fd, PrintWriter writer, String[] args) {
+        super.dump(fd, writer, args);
+        PhoneSensorManager manager = (PhoneSensorManager) getDeviceManager();
+        if (manager != null) {
+            manager.getSendLatencies().dump(writer, args);
+            writer.println(String.format(Locale.US, "Sensor clock drift at last synchronization: %.3f ms",
+                    manager.getClockDrift() / 1_000_000d));
+            writer.flush();
+        }
+    }
+
     @Override
     protected PhoneSensorTopics getTopics() {
         return PhoneSensorTopics.getInstance();
@@ -29,6 +29,13 @@ public class PhoneSensorTopics extends DeviceTopics {
     private final AvroTopic<MeasurementKey, PhoneBatteryLevel> batteryLevelTopic;
     private final AvroTopic<MeasurementKey, PhoneLight> lightTopic;
     private final AvroTopic<MeasurementKey, PhoneUserInteraction> interactionTopic;
+    private final AvroTopic<MeasurementKey, PhoneAccelerationWindow> accelerationWindowTopic;
+    private final AvroTopic<MeasurementKey, PhoneAccelerationBlock> accelerationBlockTopic;
+    private final AvroTopic<MeasurementKey, PhoneSensorHealth> sensorHealthTopic;
+    private final AvroTopic<MeasurementKey, PhoneLinearAcceleration> linearAccelerationTopic;
+    private final AvroTopic<MeasurementKey, PhoneOrientation> orientationTopic;
+    private final AvroTopic<MeasurementKey, PhoneAccelerationSpectrum> accelerationSpectrumTopic;
+    private final AvroTopic<MeasurementKey, PhoneInteractionSummary> interactionSummaryTopic;
 
     public static PhoneSensorTopics getInstance() {
         synchronized (syncObject) {
@@ -52,6 +59,27 @@ public class PhoneSensorTopics extends DeviceTopics {
         interactionTopic = createTopic("android_phone_user_interaction",
                 PhoneUserInteraction.getClassSchema(),
                 PhoneUserInteraction.class);
+        accelerationWindowTopic = createTopic("android_phone_acceleration_window",
+                PhoneAccelerationWindow.getClassSchema(),
+                PhoneAccelerationWindow.class);
+        accelerationBlockTopic = createTopic("android_phone_acceleration_block",
+                PhoneAccelerationBlock.getClassSchema(),
+                PhoneAccelerationBlock.class);
+        sensorHealthTopic = createTopic("android_phone_sensor_health",
+                PhoneSensorHealth.getClassSchema(),
+                PhoneSensorHealth.class);
+        linearAccelerationTopic = createTopic("android_phone_linear_acceleration",
+                PhoneLinearAcceleration.getClassSchema(),
+                PhoneLinearAcceleration.class);
+        orientationTopic = createTopic("android_phone_orientation",
+                PhoneOrientation.getClassSchema(),
+                PhoneOrientation.class);
+        accelerationSpectrumTopic = createTopic("android_phone_acceleration_spectrum",
+                PhoneAccelerationSpectrum.getClassSchema(),
+                PhoneAccelerationSpectrum.class);
+        interactionSummaryTopic = createTopic("android_phone_interaction_summary",
+                PhoneInteractionSummary.getClassSchema(),
+                PhoneInteractionSummary.class);
     }
 
     public AvroTopic<MeasurementKey, PhoneAcceleration> getAccelerationTopic() {
@@ -69,4 +97,32 @@ public class PhoneSensorTopics extends DeviceTopics {
     public AvroTopic<MeasurementKey, PhoneUserInteraction> getUserInteractionTopic() {
         return interactionTopic;
     }
+
+    public AvroTopic<MeasurementKey, PhoneAccelerationWindow> getAccelerationWindowTopic() {
+        return accelerationWindowTopic;
+    }
+
+    public AvroTopic<MeasurementKey, PhoneAccelerationBlock> getAccelerationBlockTopic() {
+        return accelerationBlockTopic;
+    }
+
+    public AvroTopic<MeasurementKey, PhoneSensorHealth> getSensorHealthTopic() {
+        return sensorHealthTopic;
+    }
+
+    public AvroTopic<MeasurementKey, PhoneLinearAcceleration> getLinearAccelerationTopic() {
+        return linearAccelerationTopic;
+    }
+
+    public AvroTopic<MeasurementKey, PhoneOrientation> getOrientationTopic() {
+        return orientationTopic;
+    }
+
+    public AvroTopic<MeasurementKey, PhoneAccelerationSpectrum> getAccelerationSpectrumTopic() {
+        return accelerationSpectrumTopic;
+    }
+
+    public AvroTopic<MeasurementKey, PhoneInteractionSummary> getInteractionSummaryTopic() {
+        return interactionSummaryTopic;
+    }
 }
@@ -21,33 +21,77 @@ import android.os.Parcel;
 import org.radarcns.android.device.BaseDeviceState;
 import org.radarcns.android.device.DeviceStateCreator;
 
+import java.util.concurrent.atomic.AtomicInteger;
+
 /**
- * The status on a single point in time
+ * The status on a single point in time.
+ *
+ * Values are published with a sequence lock, so that sensor writers never block on readers. Readers
+ * retry until they read a consistent snapshot of all values. Writes of different values are
+ * serialized among each other.
  */
 public class PhoneState extends BaseDeviceState {
-    private float[] acceleration = {Float.NaN, Float.NaN, Float.NaN};
-    private float batteryLevel = Float.NaN;
-    private float light = Float.NaN;
+    /** Even when stable, odd while a write is in progress. */
+    private final AtomicInteger sequence = new AtomicInteger();
+    private volatile float accelerationX = Float.NaN;
+    private volatile float accelerationY = Float.NaN;
+    private volatile float accelerationZ = Float.NaN;
+    private volatile float batteryLevel = Float.NaN;
+    private volatile float light = Float.NaN;
+    private volatile float accelerationRate = Float.NaN;
+    private volatile int accelerationGapCount = 0;
+    private volatile double lastAccelerationTime = Double.NaN;
 
     public static final Creator<PhoneState> CREATOR = new DeviceStateCreator<>(PhoneState.class);
 
     @Override
-    public synchronized void writeToParcel(Parcel dest, int flags) {
+    public void writeToParcel(Parcel dest, int flags) {
         super.writeToParcel(dest, flags);
-        dest.writeFloat(this.acceleration[0]);
-        dest.writeFloat(this.acceleration[1]);
-        dest.writeFloat(this.acceleration[2]);
-        dest.writeFloat(this.batteryLevel);
-        dest.writeFloat(this.light);
+        float x, y, z, battery, lightValue, rate;
+        int gapCount;
+        double lastTime;
+        int version;
+        do {
+            version = beginRead();
+            x = this.accelerationX;
+            y = this.accelerationY;
+            z = this.accelerationZ;
+            battery = this.batteryLevel;
+            lightValue = this.light;
+            rate = this.accelerationRate;
+            gapCount = this.accelerationGapCount;
+            lastTime = this.lastAccelerationTime;
+        } while (!endRead(version));
+        dest.writeFloat(x);
+        dest.writeFloat(y);
+        dest.writeFloat(z);
+        dest.writeFloat(battery);
+        dest.writeFloat(lightValue);
+        dest.writeFloat(rate);
+        dest.writeInt(gapCount);
+        dest.writeDouble(lastTime);
     }
 
     public void updateFromParcel(Parcel in) {
         super.updateFromParcel(in);
-        acceleration[0] = in.readFloat();
-        acceleration[1] = in.readFloat();
-        acceleration[2] = in.readFloat();
-        batteryLevel = in.readFloat();
-        light = in.readFloat();
+        float x = in.readFloat();
+        float y = in.readFloat();
+        float z = in.readFloat();
+        float battery = in.readFloat();
+        float lightValue = in.readFloat();
+        float rate = in.readFloat();
+        int gapCount = in.readInt();
+        double lastTime = in.readDouble();
+        beginWrite();
+        accelerationX = x;
+        accelerationY = y;
+        accelerationZ = z;
+        batteryLevel = battery;
+        light = lightValue;
+        accelerationRate = rate;
+        accelerationGapCount = gapCount;
+        lastAccelerationTime = lastTime;
+        endWrite();
     }
 
     @Override
@@ -55,15 +99,26 @@ public class PhoneState extends BaseDeviceState {
         return true;
     }
 
+    /** Consistent copy of the last acceleration values. */
     @Override
     public float[] getAcceleration() {
+        float[] acceleration = new float[3];
+        int version;
+        do {
+            version = beginRead();
+            acceleration[0] = this.accelerationX;
+            acceleration[1] = this.accelerationY;
+            acceleration[2] = this.accelerationZ;
+        } while (!endRead(version));
         return acceleration;
     }
 
-    public synchronized void setAcceleration(float x, float y, float z) {
-        this.acceleration[0] = x;
-        this.acceleration[1] = y;
-        this.acceleration[2] = z;
+    public void setAcceleration(float x, float y, float z) {
+        beginWrite();
+        this.accelerationX = x;
+        this.accelerationY = y;
+        this.accelerationZ = z;
+        endWrite();
     }
 
     @Override
@@ -71,8 +126,10 @@ public class PhoneState extends BaseDeviceState {
         return batteryLevel;
     }
 
-    public synchronized void setBatteryLevel(float batteryLevel) {
+    public void setBatteryLevel(float batteryLevel) {
+        beginWrite();
         this.batteryLevel = batteryLevel;
+        endWrite();
     }
 
     public float getLight() {
@@ -80,7 +137,58 @@ public class PhoneState extends BaseDeviceState {
     }
 
     public void setLight(float light) {
+        beginWrite();
         this.light = light;
+        endWrite();
     }
 
+    /** Accelerometer events per second in the last sensor health interval. */
+    public float getAccelerationRate() {
+        return accelerationRate;
+    }
+
+    /** Number of gaps between accelerometer events in the last sensor health interval. */
+    public int getAccelerationGapCount() {
+        return accelerationGapCount;
+    }
+
+    /**
+     * Time of the last accelerometer event as of the last sensor health interval.
+     * @return time in seconds UTC, or NaN if no event was received.
+     */
+    public double getLastAccelerationTime() {
+        return lastAccelerationTime;
+    }
+
+    public void setAccelerationHealth(float rate, int gapCount, double lastTime) {
+        beginWrite();
+        this.accelerationRate = rate;
+        this.accelerationGapCount = gapCount;
+        this.lastAccelerationTime = lastTime;
+        endWrite();
+    }
+
+    private void beginWrite() {
+        int current;
+        do {
+            current = sequence.get();
+        } while ((current & 1) != 0 || !sequence.compareAndSet(current, current + 1));
+    }
+
+    private void endWrite() {
+        sequence.incrementAndGet();
+    }
+
+    private int beginRead() {
+        int current = sequence.get();
+        while ((current & 1) != 0) {
+            Thread.yield();
+            current = sequence.get();
+        }
+        return current;
+    }
+
+    private boolean endRead(int version) {
+        return sequence.get() == version;
+    }
 }
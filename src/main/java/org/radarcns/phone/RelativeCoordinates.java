@@ -0,0 +1,44 @@
+/*
+ * Copyright 2017 The Hyve
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ * http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+package org.radarcns.phone;
+
+/**
+ * Coordinates relative to a stored reference point. A coordinate is subtracted from its reference
+ * in primitive doubles. This is exact when the coordinate is within a factor two of the
+ * reference, and otherwise rounded once, so the result stays within about 1e-14 degrees of the
+ * exact decimal difference.
+ */
+final class RelativeCoordinates {
+    private RelativeCoordinates() {
+        // utility class
+    }
+
+    /** Parse a stored reference. References stored as BigDecimal strings are also accepted. */
+    static double parseReference(String reference) {
+        return Double.parseDouble(reference);
+    }
+
+    /** Format a reference for storage. */
+    static String formatReference(double reference) {
+        return Double.toString(reference);
+    }
+
+    /** Coordinate relative to a reference. */
+    static double relative(double absolute, double reference) {
+        return absolute - reference;
+    }
+}
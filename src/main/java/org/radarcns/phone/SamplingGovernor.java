@@ -0,0 +1,165 @@
+/*
+ * Copyright 2017 The Hyve
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ * http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+package org.radarcns.phone;
+
+import android.content.Context;
+import android.content.Intent;
+import android.content.IntentFilter;
+import android.os.BatteryManager;
+import android.os.Build;
+import android.os.PowerManager;
+
+/**
+ * Battery-aware sampling policy. Below a start level, the battery range is divided into tiers
+ * at the start level, half of it and a quarter of it. Each tier doubles the sampling periods of
+ * the previous tier, so that data collection degrades gradually instead of the battery running
+ * out. Power-save mode selects at least the second tier. While charging, full sampling rates are
+ * used. A tier is only left for a better one once the battery level is clearly above its
+ * threshold, so that the sampling rate does not flap around a threshold. This class is not
+ * thread-safe.
+ */
+class SamplingGovernor {
+    // battery-aware sampling, disabled by default
+    static final float START_LEVEL_DEFAULT = 0f;
+    static final int MAX_TIER = 3;
+    private static final int POWER_SAVE_TIER = 2;
+    // battery level above a threshold before its tier is left
+    private static final float HYSTERESIS = 0.02f;
+
+    private float startLevel;
+    private float batteryLevel;
+    private boolean isCharging;
+    private boolean isPowerSaveMode;
+    private int tier;
+
+    /**
+     * Sampling governor.
+     * @param startLevel battery level, as a fraction of a full battery, below which sampling
+     *                   periods are increased, or 0 to always sample at full rate.
+     */
+    SamplingGovernor(float startLevel) {
+        this.startLevel = startLevel;
+        this.batteryLevel = Float.NaN;
+        this.isCharging = false;
+        this.isPowerSaveMode = false;
+        this.tier = 0;
+    }
+
+    /** Intent filter of the broadcasts that the governor needs. */
+    static IntentFilter createIntentFilter() {
+        IntentFilter filter = new IntentFilter(Intent.ACTION_BATTERY_CHANGED);
+        if (Build.VERSION.SDK_INT >= Build.VERSION_CODES.LOLLIPOP) {
+            filter.addAction(PowerManager.ACTION_POWER_SAVE_MODE_CHANGED);
+        }
+        return filter;
+    }
+
+    /**
+     * Update the governor from a broadcast matching {@link #createIntentFilter()}.
+     * @return whether the sampling factor changed.
+     */
+    boolean update(Context context, Intent intent) {
+        if (intent == null) {
+            return false;
+        }
+        if (Intent.ACTION_BATTERY_CHANGED.equals(intent.getAction())) {
+            int level = intent.getIntExtra(BatteryManager.EXTRA_LEVEL, -1);
+            int scale = intent.getIntExtra(BatteryManager.EXTRA_SCALE, -1);
+            int status = intent.getIntExtra(
+                    BatteryManager.EXTRA_STATUS, BatteryManager.BATTERY_STATUS_UNKNOWN);
+            boolean charging = intent.getIntExtra(BatteryManager.EXTRA_PLUGGED, 0) > 0
+                    || status == BatteryManager.BATTERY_STATUS_CHARGING
+                    || status == BatteryManager.BATTERY_STATUS_FULL;
+            return updateBattery(level >= 0 && scale > 0 ? level / (float) scale : Float.NaN,
+                    charging);
+        } else {
+            return updatePowerSaveMode(context);
+        }
+    }
+
+    /**
+     * Update the battery level and charging state.
+     * @param level battery level as a fraction of a full battery, or NaN if unknown.
+     * @param charging whether the battery is plugged in or charging.
+     * @return whether the sampling factor changed.
+     */
+    boolean updateBattery(float level, boolean charging) {
+        batteryLevel = level;
+        isCharging = charging;
+        return updateTier();
+    }
+
+    /**
+     * Read the current power-save mode. Power-save mode is only available from Android 5.0.
+     * @return whether the sampling factor changed.
+     */
+    boolean updatePowerSaveMode(Context context) {
+        if (Build.VERSION.SDK_INT < Build.VERSION_CODES.LOLLIPOP) {
+            return false;
+        }
+        PowerManager powerManager = (PowerManager) context.getSystemService(Context.POWER_SERVICE);
+        isPowerSaveMode = powerManager != null && powerManager.isPowerSaveMode();
+        return updateTier();
+    }
+
+    /**
+     * Set the battery level below which sampling periods are increased.
+     * @param level battery level as a fraction of a full battery, or 0 to always sample at full
+     *              rate.
+     * @return whether the sampling factor changed.
+     */
+    boolean setStartLevel(float level) {
+        startLevel = level;
+        return updateTier();
+    }
+
+    float getStartLevel() {
+        return startLevel;
+    }
+
+    /** Current tier, from 0 for full rate up to {@link #MAX_TIER}. */
+    int getTier() {
+        return tier;
+    }
+
+    /** Factor to multiply sampling periods with in the current tier. */
+    int getFactor() {
+        return 1 << tier;
+    }
+
+    private boolean updateTier() {
+        int newTier = 0;
+        if (!isCharging) {
+            if (startLevel > 0f && !Float.isNaN(batteryLevel)) {
+                for (int i = 1; i <= MAX_TIER; i++) {
+                    float threshold = startLevel / (1 << (i - 1));
+                    if (batteryLevel <= (tier >= i ? threshold + HYSTERESIS : threshold)) {
+                        newTier = i;
+                    }
+                }
+            }
+            if (isPowerSaveMode) {
+                newTier = Math.max(newTier, POWER_SAVE_TIER);
+            }
+        }
+        if (newTier == tier) {
+            return false;
+        }
+        tier = newTier;
+        return true;
+    }
+}
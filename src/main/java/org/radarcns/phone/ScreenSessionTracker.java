@@ -0,0 +1,153 @@
+/*
+ * Copyright 2017 The Hyve
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ * http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+package org.radarcns.phone;
+
+/**
+ * State machine of screen sessions, summarizing them over fixed intervals. The screen is either
+ * off, on while locked, or on and unlocked. A session lasts from the screen turning on to it
+ * turning off. Intervals are aligned to multiples of the interval length in UTC. Time spent in
+ * each state is split over intervals, and each session is counted in the interval in which it
+ * ends. This class is not thread-safe.
+ */
+class ScreenSessionTracker {
+    enum State {
+        OFF, ON, UNLOCKED
+    }
+
+    private final double interval;
+
+    private State state;
+    private double stateStart;
+    private double sessionStart;
+    private double intervalStart;
+
+    private int screenOnCount;
+    private int unlockCount;
+    private int sessionCount;
+    private double screenOnDuration;
+    private double unlockedDuration;
+    private double sessionDurationSum;
+    private double maxSessionDuration;
+
+    /**
+     * Screen session tracker.
+     * @param interval length of summary intervals in seconds.
+     */
+    ScreenSessionTracker(double interval) {
+        if (interval <= 0d) {
+            throw new IllegalArgumentException("Interval must be positive");
+        }
+        this.interval = interval;
+        this.intervalStart = Double.NaN;
+    }
+
+    double getInterval() {
+        return interval;
+    }
+
+    boolean isStarted() {
+        return !Double.isNaN(intervalStart);
+    }
+
+    /**
+     * Start tracking from given state. If the screen is on, a session starts at given time.
+     * @param time time in seconds UTC.
+     */
+    void start(double time, State initialState) {
+        intervalStart = Math.floor(time / interval) * interval;
+        state = initialState;
+        stateStart = time;
+        sessionStart = initialState != State.OFF ? time : Double.NaN;
+        resetCounts();
+    }
+
+    /** End of the current interval in seconds UTC. */
+    double getIntervalEnd() {
+        return intervalStart + interval;
+    }
+
+    /**
+     * Update the screen state. Call {@link #poll(double)} until it returns null before updating
+     * the state.
+     * @param time time of the state change in seconds UTC.
+     */
+    void update(double time, State newState) {
+        if (newState == state || (newState == State.ON && state == State.UNLOCKED)) {
+            return;
+        }
+        accumulate(time);
+        if (state == State.OFF) {
+            screenOnCount++;
+            sessionStart = time;
+        }
+        if (newState == State.UNLOCKED) {
+            unlockCount++;
+        } else if (newState == State.OFF) {
+            double duration = time - sessionStart;
+            sessionCount++;
+            sessionDurationSum += duration;
+            if (duration > maxSessionDuration) {
+                maxSessionDuration = duration;
+            }
+            sessionStart = Double.NaN;
+        }
+        state = newState;
+    }
+
+    /**
+     * Close the current interval if it ended before given time.
+     * @param time current time in seconds UTC.
+     * @return summary of the closed interval, or null if the interval has not ended yet.
+     */
+    PhoneInteractionSummary poll(double time) {
+        double intervalEnd = getIntervalEnd();
+        if (time < intervalEnd) {
+            return null;
+        }
+        accumulate(intervalEnd);
+        PhoneInteractionSummary summary = new PhoneInteractionSummary(intervalStart, time,
+                (float) interval, screenOnCount, unlockCount, sessionCount,
+                (float) screenOnDuration, (float) unlockedDuration,
+                sessionCount > 0 ? (float) (sessionDurationSum / sessionCount) : Float.NaN,
+                sessionCount > 0 ? (float) maxSessionDuration : Float.NaN);
+        intervalStart = intervalEnd;
+        resetCounts();
+        return summary;
+    }
+
+    /** Add the time in the current state up to given time. */
+    private void accumulate(double time) {
+        double duration = Math.max(time - stateStart, 0d);
+        if (state != State.OFF) {
+            screenOnDuration += duration;
+        }
+        if (state == State.UNLOCKED) {
+            unlockedDuration += duration;
+        }
+        stateStart = Math.max(time, stateStart);
+    }
+
+    private void resetCounts() {
+        screenOnCount = 0;
+        unlockCount = 0;
+        sessionCount = 0;
+        screenOnDuration = 0d;
+        unlockedDuration = 0d;
+        sessionDurationSum = 0d;
+        maxSessionDuration = 0d;
+    }
+}
@@ -0,0 +1,141 @@
+/*
+ * Copyright 2017 The Hyve
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ * http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+package org.radarcns.phone;
+
+import java.util.ArrayList;
+import java.util.List;
+
+/**
+ * Tracks whether a sensor delivers events at the requested rate. Times between consecutive events
+ * are collected in a histogram relative to the requested sampling period, and times of more than
+ * {@link #GAP_FACTOR} periods are counted as gaps. Statistics are reset at each report. All times
+ * are elapsed realtime in nanoseconds, as in sensor event timestamps. Events must be added and
+ * reported from a single thread; the requested period may be set from any thread.
+ */
+class SensorHealth {
+    /** Times between events of more than this many requested periods are gaps. */
+    static final double GAP_FACTOR = 3d;
+    /** Upper bounds of the gap histogram bins, in multiples of the requested period. */
+    private static final double[] HISTOGRAM_BOUNDS = {0.5d, 1.5d, GAP_FACTOR, 10d};
+
+    private volatile int requestedDelay;
+    private long lastTimestamp;
+    private long reportStart;
+    private int count;
+    private int gapCount;
+    private long maxGap;
+    private final int[] histogram;
+
+    SensorHealth() {
+        requestedDelay = 0;
+        lastTimestamp = Long.MIN_VALUE;
+        reportStart = Long.MIN_VALUE;
+        histogram = new int[HISTOGRAM_BOUNDS.length + 1];
+    }
+
+    /**
+     * Set the sampling period in microseconds that the sensor was registered with, or 0 if it
+     * was unregistered.
+     */
+    void setRequestedDelay(int delay) {
+        requestedDelay = delay;
+    }
+
+    /** Whether the sensor is registered, with a non-zero requested delay. */
+    boolean isRegistered() {
+        return requestedDelay > 0;
+    }
+
+    /** Register an event at given timestamp. */
+    void add(long timestamp) {
+        count++;
+        if (lastTimestamp != Long.MIN_VALUE) {
+            long gap = timestamp - lastTimestamp;
+            if (gap > maxGap) {
+                maxGap = gap;
+            }
+            double periods = gap / (requestedDelay * 1000d);
+            int bin = 0;
+            while (bin < HISTOGRAM_BOUNDS.length && periods >= HISTOGRAM_BOUNDS[bin]) {
+                bin++;
+            }
+            histogram[bin]++;
+            if (periods > GAP_FACTOR) {
+                gapCount++;
+            }
+        }
+        lastTimestamp = timestamp;
+    }
+
+    /** Effective rate in Hz of the current interval, up to given time. */
+    double getEffectiveRate(long now) {
+        return reportStart == Long.MIN_VALUE || now <= reportStart
+                ? Double.NaN : count * 1_000_000_000d / (now - reportStart);
+    }
+
+    int getGapCount() {
+        return gapCount;
+    }
+
+    boolean isStarted() {
+        return reportStart != Long.MIN_VALUE;
+    }
+
+    /** Timestamp of the last event, or {@code Long.MIN_VALUE} if no event was received. */
+    long getLastTimestamp() {
+        return lastTimestamp;
+    }
+
+    /**
+     * Start the first reporting interval. Until then, events are counted but no rate can be
+     * computed.
+     */
+    void start(long now) {
+        reportStart = now;
+    }
+
+    /**
+     * Create a report of the current interval and start a new interval.
+     * @param now current elapsed realtime in nanoseconds.
+     */
+    PhoneSensorHealth createRecord(int type, String name, long now, ClockOffset clockOffset) {
+        List<Integer> histogramValues = new ArrayList<>(histogram.length);
+        for (int value : histogram) {
+            histogramValues.add(value);
+        }
+        int delay = requestedDelay;
+        long start = reportStart == Long.MIN_VALUE ? now : reportStart;
+        PhoneSensorHealth value = new PhoneSensorHealth(
+                clockOffset.toUtcSeconds(start), clockOffset.toUtcSeconds(now),
+                type, name,
+                delay > 0 ? (float) (1_000_000d / delay) : Float.NaN,
+                (float) getEffectiveRate(now),
+                count, gapCount, maxGap / 1_000_000_000f,
+                lastTimestamp != Long.MIN_VALUE
+                        ? (now - lastTimestamp) / 1_000_000_000f : Float.NaN,
+                histogramValues);
+
+        reportStart = now;
+        count = 0;
+        gapCount = 0;
+        maxGap = 0L;
+        for (int i = 0; i < histogram.length; i++) {
+            histogram[i] = 0;
+        }
+        return value;
+    }
+}
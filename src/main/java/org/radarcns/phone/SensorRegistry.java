@@ -0,0 +1,120 @@
+/*
+ * Copyright 2017 The Hyve
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ * http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+package org.radarcns.phone;
+
+import android.hardware.SensorEvent;
+import android.util.SparseArray;
+
+import org.radarcns.key.MeasurementKey;
+import org.radarcns.topic.AvroTopic;
+
+/**
+ * Registry of sensors that a sensor manager listens to. Each sensor type maps to a processor for
+ * its events, the topic that the processor produces, a default sampling period and the health
+ * statistics of its event delivery. Adding a sensor to the registry is sufficient to register it
+ * and to dispatch its events. Entries can be disabled to keep their sensor unregistered.
+ */
+class SensorRegistry {
+    /** Processes events of a single sensor type. */
+    interface SensorProcessor {
+        void process(SensorEvent event);
+    }
+
+    /** Registered sensor type. */
+    static class Entry {
+        private final int type;
+        private final String name;
+        private final AvroTopic<MeasurementKey, ?> topic;
+        private final int defaultDelay;
+        private final SensorProcessor processor;
+        private final SensorHealth health;
+        private volatile boolean enabled;
+
+        private Entry(int type, String name, AvroTopic<MeasurementKey, ?> topic, int defaultDelay,
+                SensorProcessor processor) {
+            this.type = type;
+            this.name = name;
+            this.topic = topic;
+            this.defaultDelay = defaultDelay;
+            this.processor = processor;
+            this.health = new SensorHealth();
+            this.enabled = true;
+        }
+
+        int getType() {
+            return type;
+        }
+
+        String getName() {
+            return name;
+        }
+
+        AvroTopic<MeasurementKey, ?> getTopic() {
+            return topic;
+        }
+
+        int getDefaultDelay() {
+            return defaultDelay;
+        }
+
+        SensorProcessor getProcessor() {
+            return processor;
+        }
+
+        SensorHealth getHealth() {
+            return health;
+        }
+
+        /** Whether the sensor should be registered. */
+        boolean isEnabled() {
+            return enabled;
+        }
+
+        void setEnabled(boolean enabled) {
+            this.enabled = enabled;
+        }
+    }
+
+    private final SparseArray<Entry> entries = new SparseArray<>();
+
+    /**
+     * Add a sensor type to the registry, replacing any existing entry of the same type.
+     * @param type sensor type, as defined in {@link android.hardware.Sensor}.
+     * @param name human readable name of the sensor.
+     * @param topic topic that the processor sends data to.
+     * @param defaultDelay default sampling period in microseconds.
+     * @param processor processor of the sensor events.
+     */
+    void register(int type, String name, AvroTopic<MeasurementKey, ?> topic, int defaultDelay,
+            SensorProcessor processor) {
+        entries.put(type, new Entry(type, name, topic, defaultDelay, processor));
+    }
+
+    /** Registry entry of given sensor type, or null if the type is not registered. */
+    Entry get(int type) {
+        return entries.get(type);
+    }
+
+    int size() {
+        return entries.size();
+    }
+
+    /** Registry entry at given index, in order of sensor type. */
+    Entry valueAt(int index) {
+        return entries.valueAt(index);
+    }
+}
@@ -0,0 +1,231 @@
+/*
+ * Copyright 2017 The Hyve
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ * http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+package org.radarcns.phone;
+
+/**
+ * Computes spectral features of the acceleration magnitude over a sliding window of samples.
+ * Samples are kept in a primitive ring buffer of the window size. Every hop, the window is
+ * transformed with an in-place radix-2 FFT, using precomputed twiddle factors, bit-reversal
+ * permutation and Hann window, so no memory is allocated per window except for the resulting
+ * record. The window is restarted if samples are more than a second apart. This class is not
+ * thread-safe.
+ */
+class SpectralFeatureExtractor {
+    /** Upper bounds of the energy bands in Hz. The last band extends to the Nyquist frequency. */
+    private static final double[] BAND_BOUNDS = {1d, 3d, 5d, 8d};
+    // maximum time between samples in a window, in seconds
+    private static final double MAX_GAP = 1d;
+
+    private final int windowSize;
+    private final int hopSize;
+
+    // ring buffer of samples
+    private final double[] magnitudes;
+    private final double[] times;
+    private int next;
+    private int count;
+    private int samplesToHop;
+
+    // FFT tables and work arrays
+    private final int[] bitReversal;
+    private final double[] cosTable;
+    private final double[] sinTable;
+    private final double[] hannWindow;
+    private final double hannPower;
+    private final double[] real;
+    private final double[] imaginary;
+    private final double[] bandEnergies;
+
+    /**
+     * Spectral feature extractor.
+     * @param windowSize number of samples in a window, a power of two of at least 4.
+     * @param hopSize number of samples between the starts of subsequent windows.
+     */
+    SpectralFeatureExtractor(int windowSize, int hopSize) {
+        if (windowSize < 4 || Integer.bitCount(windowSize) != 1) {
+            throw new IllegalArgumentException("Window size must be a power of two of at least 4");
+        }
+        if (hopSize <= 0) {
+            throw new IllegalArgumentException("Hop size must be positive");
+        }
+        this.windowSize = windowSize;
+        this.hopSize = hopSize;
+        magnitudes = new double[windowSize];
+        times = new double[windowSize];
+        real = new double[windowSize];
+        imaginary = new double[windowSize];
+        bandEnergies = new double[BAND_BOUNDS.length + 1];
+
+        int bits = Integer.numberOfTrailingZeros(windowSize);
+        bitReversal = new int[windowSize];
+        for (int i = 0; i < windowSize; i++) {
+            bitReversal[i] = Integer.reverse(i) >>> (Integer.SIZE - bits);
+        }
+        cosTable = new double[windowSize / 2];
+        sinTable = new double[windowSize / 2];
+        for (int i = 0; i < windowSize / 2; i++) {
+            double angle = 2d * Math.PI * i / windowSize;
+            cosTable[i] = Math.cos(angle);
+            sinTable[i] = Math.sin(angle);
+        }
+        // periodic Hann window
+        hannWindow = new double[windowSize];
+        double power = 0d;
+        for (int i = 0; i < windowSize; i++) {
+            hannWindow[i] = 0.5d * (1d - Math.cos(2d * Math.PI * i / windowSize));
+            power += hannWindow[i] * hannWindow[i];
+        }
+        hannPower = power;
+        reset();
+    }
+
+    int getWindowSize() {
+        return windowSize;
+    }
+
+    int getHopSize() {
+        return hopSize;
+    }
+
+    /** Remove all samples. */
+    void reset() {
+        next = 0;
+        count = 0;
+        samplesToHop = 0;
+    }
+
+    /**
+     * Add a sample.
+     * @param time time in seconds.
+     * @return whether a window is complete, and a record should be created.
+     */
+    boolean add(double time, float x, float y, float z) {
+        if (count > 0) {
+            int last = (next + windowSize - 1) % windowSize;
+            if (!(time - times[last] < MAX_GAP)) {
+                reset();
+            }
+        }
+        times[next] = time;
+        magnitudes[next] = Math.sqrt((double) x * x + (double) y * y + (double) z * z);
+        next = (next + 1) % windowSize;
+        if (count < windowSize) {
+            count++;
+        }
+        if (samplesToHop > 0) {
+            samplesToHop--;
+        }
+        if (count < windowSize || samplesToHop > 0) {
+            return false;
+        }
+        samplesToHop = hopSize;
+        return true;
+    }
+
+    /**
+     * Compute the features of the current window. Only call after {@link #add} returned true.
+     * @param timeReceived time that the last sample was received in seconds UTC.
+     */
+    PhoneAccelerationSpectrum createRecord(double timeReceived) {
+        // oldest sample is at the next write position
+        double startTime = times[next];
+        double endTime = times[(next + windowSize - 1) % windowSize];
+        double duration = endTime - startTime;
+        double sampleRate = duration > 0d ? (windowSize - 1) / duration : Double.NaN;
+
+        double mean = 0d;
+        for (int i = 0; i < windowSize; i++) {
+            mean += magnitudes[i];
+        }
+        mean /= windowSize;
+
+        double windowedEnergy = 0d;
+        for (int i = 0; i < windowSize; i++) {
+            double value = (magnitudes[(next + i) % windowSize] - mean) * hannWindow[i];
+            int j = bitReversal[i];
+            real[j] = value;
+            imaginary[j] = 0d;
+            windowedEnergy += value * value;
+        }
+        transform();
+
+        // one-sided power spectrum, excluding the constant component
+        double totalPower = 0d;
+        double maxPower = -1d;
+        int maxIndex = 0;
+        for (int i = 0; i < bandEnergies.length; i++) {
+            bandEnergies[i] = 0d;
+        }
+        int band = 0;
+        for (int k = 1; k <= windowSize / 2; k++) {
+            double power = real[k] * real[k] + imaginary[k] * imaginary[k];
+            totalPower += power;
+            if (power > maxPower) {
+                maxPower = power;
+                maxIndex = k;
+            }
+            double frequency = k * sampleRate / windowSize;
+            while (band < BAND_BOUNDS.length && frequency >= BAND_BOUNDS[band]) {
+                band++;
+            }
+            bandEnergies[band] += power;
+        }
+
+        double entropy = 0d;
+        if (totalPower > 0d) {
+            for (int k = 1; k <= windowSize / 2; k++) {
+                double p = (real[k] * real[k] + imaginary[k] * imaginary[k]) / totalPower;
+                if (p > 0d) {
+                    entropy -= p * Math.log(p);
+                }
+            }
+            entropy /= Math.log(windowSize / 2);
+            for (int i = 0; i < bandEnergies.length; i++) {
+                bandEnergies[i] /= totalPower;
+            }
+        }
+
+        return new PhoneAccelerationSpectrum(startTime, timeReceived,
+                (float) duration, (float) sampleRate, (float) (windowedEnergy / hannPower),
+                (float) (maxIndex * sampleRate / windowSize),
+                (float) bandEnergies[0], (float) bandEnergies[1], (float) bandEnergies[2],
+                (float) bandEnergies[3], (float) bandEnergies[4],
+                totalPower > 0d ? (float) entropy : Float.NaN);
+    }
+
+    /** In-place iterative radix-2 FFT of bit-reversed input. */
+    private void transform() {
+        for (int size = 2; size <= windowSize; size <<= 1) {
+            int half = size / 2;
+            int step = windowSize / size;
+            for (int start = 0; start < windowSize; start += size) {
+                for (int j = 0; j < half; j++) {
+                    double wr = cosTable[j * step];
+                    double wi = -sinTable[j * step];
+                    int a = start + j;
+                    int b = a + half;
+                    double tr = wr * real[b] - wi * imaginary[b];
+                    double ti = wr * imaginary[b] + wi * real[b];
+                    real[b] = real[a] - tr;
+                    imaginary[b] = imaginary[a] - ti;
+                    real[a] += tr;
+                    imaginary[a] += ti;
+                }
+            }
+        }
+    }
+}
@@ -0,0 +1,149 @@
+/*
+ * Copyright 2017 The Hyve
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ * http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+package org.radarcns.phone;
+
+import android.location.Location;
+
+/**
+ * Detects whether the phone is stationary from successive location fixes. The first recent fix
+ * is taken as an anchor. Once fixes have stayed within a radius of the anchor for a dwell time,
+ * the phone is considered stationary. A fix outside the radius, taking its accuracy into account,
+ * is considered movement and becomes the new anchor. Only fixes that are accurate to within the
+ * radius are used as anchor or as evidence of staying within it. This class is not thread-safe.
+ */
+class StationaryDetector {
+    // stationary detection, disabled by default
+    static final long DWELL_TIME_DEFAULT = 0L; // seconds
+    static final float RADIUS_DEFAULT = 100f; // meters
+
+    private final float[] distance = new float[1];
+    private long dwellTime;
+    private float radius;
+    private boolean hasAnchor;
+    private double anchorLatitude;
+    private double anchorLongitude;
+    private long anchorTime;
+    private boolean isStationary;
+
+    /**
+     * Stationary detector.
+     * @param dwellTime time in seconds that fixes should stay within the radius, or 0 to disable
+     *                  detection.
+     * @param radius radius in meters.
+     */
+    StationaryDetector(long dwellTime, float radius) {
+        this.dwellTime = dwellTime;
+        this.radius = radius;
+        reset();
+    }
+
+    /**
+     * Update the detector with a new location fix. Fixes older than the anchor are ignored, and
+     * fixes older than the dwell time are not used as anchor.
+     * @param location location fix
+     * @param now current time in milliseconds UTC
+     * @return whether the stationary state changed.
+     */
+    boolean update(Location location, long now) {
+        if (!isEnabled()) {
+            return false;
+        }
+        long time = location.getTime();
+        // a fix that is less accurate than the radius cannot show that the phone stayed in it
+        boolean isAccurate = location.hasAccuracy() && location.getAccuracy() <= radius;
+        if (!hasAnchor) {
+            // a stale fix, like the last known location, may be from before the phone moved
+            if (isAccurate && time >= now - dwellTime * 1000L) {
+                setAnchor(location);
+            }
+            return false;
+        }
+        if (time < anchorTime) {
+            return false;
+        }
+        Location.distanceBetween(anchorLatitude, anchorLongitude,
+                location.getLatitude(), location.getLongitude(), distance);
+        float accuracy = location.hasAccuracy() ? location.getAccuracy() : 0f;
+        if (distance[0] > radius + accuracy) {
+            if (isAccurate) {
+                setAnchor(location);
+            } else {
+                hasAnchor = false;
+            }
+            return setStationary(false);
+        } else if (isAccurate) {
+            return setStationary(time - anchorTime >= dwellTime * 1000L);
+        } else {
+            return false;
+        }
+    }
+
+    /** Consider the phone moving, for example after leaving a geofence around the anchor. */
+    boolean reset() {
+        hasAnchor = false;
+        return setStationary(false);
+    }
+
+    boolean isEnabled() {
+        return dwellTime > 0L;
+    }
+
+    boolean isStationary() {
+        return isStationary;
+    }
+
+    double getAnchorLatitude() {
+        return anchorLatitude;
+    }
+
+    double getAnchorLongitude() {
+        return anchorLongitude;
+    }
+
+    long getDwellTime() {
+        return dwellTime;
+    }
+
+    float getRadius() {
+        return radius;
+    }
+
+    /**
+     * Set the dwell time and radius. This resets the detector.
+     * @return whether the stationary state changed.
+     */
+    boolean configure(long dwellTime, float radius) {
+        this.dwellTime = dwellTime;
+        this.radius = radius;
+        return reset();
+    }
+
+    private void setAnchor(Location location) {
+        hasAnchor = true;
+        anchorLatitude = location.getLatitude();
+        anchorLongitude = location.getLongitude();
+        anchorTime = location.getTime();
+    }
+
+    private boolean setStationary(boolean stationary) {
+        if (stationary == isStationary) {
+            return false;
+        }
+        isStationary = stationary;
+        return true;
+    }
+}
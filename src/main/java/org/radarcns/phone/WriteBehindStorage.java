@@ -0,0 +1,175 @@
+/*
+ * Copyright 2017 The Hyve
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ * http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+package org.radarcns.phone;
+
+import org.radarcns.android.util.PersistentStorage;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+
+import java.io.IOException;
+import java.util.HashMap;
+import java.util.LinkedHashMap;
+import java.util.Map;
+import java.util.concurrent.Executors;
+import java.util.concurrent.ScheduledExecutorService;
+import java.util.concurrent.ThreadFactory;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * In-memory cache in front of {@link PersistentStorage}. Values are read from storage once and
+ * then served from memory. Writes are kept in memory and written to storage in the background
+ * after a short delay, so that repeated writes of a key result in a single storage write. If
+ * writing fails, it is retried with an increasing delay. Call {@link #flush()} to write pending
+ * values immediately, for example when closing a manager. This class is thread-safe.
+ */
+class WriteBehindStorage {
+    private static final Logger logger = LoggerFactory.getLogger(WriteBehindStorage.class);
+    // delay between the first pending write and writing it to storage
+    static final long FLUSH_DELAY_DEFAULT = 5_000L; // milliseconds
+    // maximum delay between retries of a failed flush
+    private static final long RETRY_DELAY_MAX = 5*60_000L; // milliseconds
+
+    private static final ScheduledExecutorService flushExecutor = Executors.newSingleThreadScheduledExecutor(
+            new ThreadFactory() {
+                @Override
+                public Thread newThread(Runnable runnable) {
+                    Thread thread = new Thread(runnable, "StorageFlush");
+                    thread.setDaemon(true);
+                    return thread;
+                }
+            });
+
+    private final PersistentStorage storage;
+    private final long flushDelay;
+    private final Map<String, String> values;
+    private final Map<String, String> pending;
+    // serializes flushes, so that an older value is never written after a newer one
+    private final Object flushLock;
+    private boolean isFlushScheduled;
+    private long retryDelay;
+
+    WriteBehindStorage(PersistentStorage storage) {
+        this(storage, FLUSH_DELAY_DEFAULT);
+    }
+
+    /**
+     * Write-behind storage.
+     * @param storage storage to read from and write to.
+     * @param flushDelay delay in milliseconds between a write and flushing it to storage.
+     */
+    WriteBehindStorage(PersistentStorage storage, long flushDelay) {
+        this.storage = storage;
+        this.flushDelay = flushDelay;
+        this.values = new HashMap<>();
+        this.pending = new LinkedHashMap<>();
+        this.flushLock = new Object();
+        this.isFlushScheduled = false;
+        this.retryDelay = 0L;
+    }
+
+    /** Get a value, or null if it is not set. Only the first lookup of a key reads storage. */
+    synchronized String get(String key) throws IOException {
+        if (values.containsKey(key)) {
+            return values.get(key);
+        }
+        String value = storage.get(key);
+        values.put(key, value);
+        return value;
+    }
+
+    /** Get a value, or set and return given default if it is not set. */
+    synchronized String getOrSet(String key, String defaultValue) throws IOException {
+        String value = get(key);
+        if (value == null) {
+            put(key, defaultValue);
+            value = defaultValue;
+        }
+        return value;
+    }
+
+    /** Set a value. It is written to storage in the background. */
+    synchronized void put(String key, String value) {
+        values.put(key, value);
+        pending.put(key, value);
+        if (!isFlushScheduled) {
+            scheduleFlush(flushDelay);
+        }
+    }
+
+    private synchronized void scheduleFlush(long delay) {
+        isFlushScheduled = true;
+        flushExecutor.schedule(new Runnable() {
+            @Override
+            public void run() {
+                try {
+                    flush();
+                } catch (IOException ex) {
+                    logger.error("Failed to write cached values to storage", ex);
+                }
+            }
+        }, delay, TimeUnit.MILLISECONDS);
+    }
+
+    /**
+     * Write all pending values to storage. Values that could not be written are kept pending, and
+     * a retry is scheduled.
+     * @throws IOException if a value could not be written.
+     */
+    void flush() throws IOException {
+        synchronized (flushLock) {
+            Map<String, String> toWrite;
+            synchronized (this) {
+                isFlushScheduled = false;
+                if (pending.isEmpty()) {
+                    return;
+                }
+                toWrite = new LinkedHashMap<>(pending);
+                pending.clear();
+            }
+            for (Map.Entry<String, String> entry : toWrite.entrySet()) {
+                try {
+                    storage.put(entry.getKey(), entry.getValue());
+                } catch (IOException ex) {
+                    requeue(toWrite, entry.getKey());
+                    throw ex;
+                }
+            }
+            synchronized (this) {
+                retryDelay = 0L;
+            }
+        }
+    }
+
+    /**
+     * Mark values from given key onwards as pending again, unless they were overwritten, and
+     * retry writing them. The retry delay doubles with each failed flush.
+     */
+    private synchronized void requeue(Map<String, String> toWrite, String fromKey) {
+        boolean found = false;
+        for (Map.Entry<String, String> entry : toWrite.entrySet()) {
+            found = found || entry.getKey().equals(fromKey);
+            if (found && !pending.containsKey(entry.getKey())) {
+                pending.put(entry.getKey(), entry.getValue());
+            }
+        }
+        retryDelay = retryDelay == 0L ? flushDelay : Math.min(2 * retryDelay, RETRY_DELAY_MAX);
+        if (!isFlushScheduled) {
+            logger.warn("Retrying to write cached values to storage in {} ms", retryDelay);
+            scheduleFlush(retryDelay);
+        }
+    }
+}
@@ -0,0 +1,101 @@
+/*
+ * Copyright 2017 The Hyve
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ * http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+package org.radarcns.phone;
+
+import org.junit.Test;
+
+import java.util.List;
+
+import static org.junit.Assert.assertEquals;
+
+public class AccelerationBlockEncoderTest {
+    private static final double START = 1_500_000_000d;
+
+    @Test
+    public void encodeSingleBlock() {
+        AccelerationBuffer buffer = new AccelerationBuffer(10, 10d);
+        buffer.add(START, START + 1d, 0.1f, 0.2f, 1f);
+        buffer.add(START + 0.02, START + 1d, 0.1f, 0.2f, 1f);
+        buffer.add(START + 0.04, START + 1.5d, 0.1f, 0.2f, 1f);
+
+        List<PhoneAccelerationBlock> blocks = new AccelerationBlockEncoder(0f).encode(buffer);
+        assertEquals(1, blocks.size());
+        PhoneAccelerationBlock block = blocks.get(0);
+        assertEquals(3, (int) block.getCount());
+        assertEquals(START, block.getTime(), 0d);
+        assertEquals(START + 1.5d, block.getTimeReceived(), 0d);
+        assertEquals(2, block.getTimeDeltas().size());
+        assertEquals(20_000, (int) block.getTimeDeltas().get(0));
+        assertEquals(20_000, (int) block.getTimeDeltas().get(1));
+        assertEquals(3, block.getX().size());
+    }
+
+    @Test
+    public void encodeLongGapAsNewBlock() {
+        // a gap of 3000 s does not fit in an int of microseconds
+        double gap = 3_000d;
+        AccelerationBuffer buffer = new AccelerationBuffer(10, 10_000d);
+        buffer.add(START, START, 0f, 0f, 1f);
+        buffer.add(START + 0.02, START + 0.02, 0f, 0f, 1f);
+        buffer.add(START + gap, START + gap, 1f, 0f, 0f);
+        buffer.add(START + gap + 0.02, START + gap + 0.02, 1f, 0f, 0f);
+        buffer.add(START + gap + 0.04, START + gap + 0.04, 1f, 0f, 0f);
+
+        List<PhoneAccelerationBlock> blocks = new AccelerationBlockEncoder(0.001f).encode(buffer);
+        assertEquals(2, blocks.size());
+
+        PhoneAccelerationBlock first = blocks.get(0);
+        assertEquals(2, (int) first.getCount());
+        assertEquals(START, first.getTime(), 0d);
+        assertEquals(1, first.getTimeDeltas().size());
+        assertEquals(20_000, (int) first.getTimeDeltas().get(0));
+        assertEquals(2, first.getQuantizedZ().size());
+
+        PhoneAccelerationBlock second = blocks.get(1);
+        assertEquals(3, (int) second.getCount());
+        assertEquals(START + gap, second.getTime(), 0d);
+        assertEquals(START + gap + 0.04, second.getTimeReceived(), 0d);
+        assertEquals(2, second.getTimeDeltas().size());
+        assertEquals(20_000, (int) second.getTimeDeltas().get(0));
+        assertEquals(1000, (int) second.getQuantizedX().get(0));
+    }
+
+    @Test
+    public void decodedTimesMatchSampleTimes() {
+        double[] times = {START, START + 0.013, START + 2_000d, START + 4_500d, START + 4_500.5};
+        AccelerationBuffer buffer = new AccelerationBuffer(times.length, 10_000d);
+        for (double time : times) {
+            buffer.add(time, time, 0f, 0f, 1f);
+        }
+
+        int i = 0;
+        for (PhoneAccelerationBlock block : new AccelerationBlockEncoder(0f).encode(buffer)) {
+            double time = block.getTime();
+            assertEquals(times[i++], time, 1e-6);
+            for (int delta : block.getTimeDeltas()) {
+                time += delta / 1_000_000d;
+                assertEquals(times[i++], time, 1e-6);
+            }
+        }
+        assertEquals(times.length, i);
+    }
+
+    @Test(expected = IllegalArgumentException.class)
+    public void encodeEmptyBuffer() {
+        new AccelerationBlockEncoder(0f).encode(new AccelerationBuffer(10, 10d));
+    }
+}
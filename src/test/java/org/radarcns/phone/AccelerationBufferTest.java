@@ -0,0 +1,129 @@
+/*
+ * Copyright 2017 The Hyve
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ * http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+package org.radarcns.phone;
+
+import org.junit.Test;
+
+import java.lang.management.ManagementFactory;
+
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertFalse;
+import static org.junit.Assert.assertTrue;
+import static org.junit.Assume.assumeTrue;
+
+public class AccelerationBufferTest {
+    @Test
+    public void drainWhenFull() {
+        AccelerationBuffer buffer = new AccelerationBuffer(3, 10d);
+        assertFalse(buffer.add(0d, 0d, 0f, 0f, 1f));
+        assertFalse(buffer.add(0.1d, 0.1d, 0f, 0f, 1f));
+        assertTrue(buffer.add(0.2d, 0.2d, 0f, 0f, 1f));
+        assertEquals(3, buffer.size());
+        assertEquals(0.1d, buffer.getTime(1), 0d);
+        assertEquals(1f, buffer.getZ(2), 0f);
+
+        buffer.clear();
+        assertTrue(buffer.isEmpty());
+    }
+
+    @Test
+    public void drainWhenOld() {
+        AccelerationBuffer buffer = new AccelerationBuffer(100, 1d);
+        assertFalse(buffer.add(0d, 10d, 0f, 0f, 1f));
+        assertFalse(buffer.add(0.5d, 10.5d, 0f, 0f, 1f));
+        assertTrue(buffer.add(1d, 11d, 0f, 0f, 1f));
+    }
+
+    @Test(expected = IllegalStateException.class)
+    public void addToFullBuffer() {
+        AccelerationBuffer buffer = new AccelerationBuffer(1, 10d);
+        buffer.add(0d, 0d, 0f, 0f, 1f);
+        buffer.add(0.1d, 0.1d, 0f, 0f, 1f);
+    }
+
+    @Test
+    public void steadyStateDoesNotAllocate() {
+        final AccelerationBuffer buffer = new AccelerationBuffer(50, 1d);
+        long allocated = measureAllocation(new Runnable() {
+            @Override
+            public void run() {
+                fillAndDrain(buffer, 100_000);
+            }
+        });
+        // allow for the measurement itself, which is far less than one object per sample
+        assertTrue("Allocated " + allocated + " bytes", allocated < 1024);
+    }
+
+    @Test
+    public void sampleProcessingDoesNotAllocate() {
+        // the same steps that the sensor manager takes for each accelerometer sample, without the
+        // records that are only created once per window
+        final MotionDetector detector = new MotionDetector(10d, 300d, 0.01d, 0.1d);
+        final OrientationFilter filter = new OrientationFilter(0.1d);
+        final SpectralFeatureExtractor extractor = new SpectralFeatureExtractor(64, 32);
+        final AccelerationAggregator aggregator = new AccelerationAggregator(1_000_000d);
+        final AccelerationBuffer buffer = new AccelerationBuffer(50, 1d);
+        long allocated = measureAllocation(new Runnable() {
+            @Override
+            public void run() {
+                for (int i = 0; i < 100_000; i++) {
+                    double time = i * 0.02d;
+                    float x = 0.01f * (i % 100);
+                    float y = -0.01f * (i % 50);
+                    detector.add(time, x, y, 1f);
+                    filter.addAcceleration(time, x, y, 1f);
+                    extractor.add(time, x, y, 1f);
+                    assertFalse(aggregator.isWindowComplete(time));
+                    aggregator.add(time, x, y, 1f);
+                    if (buffer.add(time, time + 0.01d, x, y, 1f)) {
+                        buffer.clear();
+                    }
+                }
+            }
+        });
+        assertTrue("Allocated " + allocated + " bytes", allocated < 1024);
+    }
+
+    /**
+     * Bytes allocated by the current thread while running given code a second time, so that
+     * class loading and compilation in the first run are not measured.
+     */
+    private static long measureAllocation(Runnable code) {
+        java.lang.management.ThreadMXBean managementBean = ManagementFactory.getThreadMXBean();
+        assumeTrue(managementBean instanceof com.sun.management.ThreadMXBean);
+        com.sun.management.ThreadMXBean threadBean = (com.sun.management.ThreadMXBean) managementBean;
+        assumeTrue(threadBean.isThreadAllocatedMemorySupported());
+        threadBean.setThreadAllocatedMemoryEnabled(true);
+        long threadId = Thread.currentThread().getId();
+
+        code.run();
+
+        long before = threadBean.getThreadAllocatedBytes(threadId);
+        code.run();
+        return threadBean.getThreadAllocatedBytes(threadId) - before;
+    }
+
+    /** Add samples at 50 Hz, clearing the buffer whenever it should be drained. */
+    private static void fillAndDrain(AccelerationBuffer buffer, int count) {
+        for (int i = 0; i < count; i++) {
+            double time = i * 0.02d;
+            if (buffer.add(time, time + 0.01d, 0.01f * i, -0.01f * i, 1f)) {
+                buffer.clear();
+            }
+        }
+    }
+}
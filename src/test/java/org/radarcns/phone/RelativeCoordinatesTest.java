@@ -0,0 +1,108 @@
+/*
+ * Copyright 2017 The Hyve
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ * http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+package org.radarcns.phone;
+
+import org.junit.Test;
+
+import java.math.BigDecimal;
+import java.util.Random;
+
+import static org.junit.Assert.assertEquals;
+
+public class RelativeCoordinatesTest {
+    private static final double TOLERANCE = 1e-9; // degrees
+    private static final int SAMPLES = 200_000;
+
+    @Test
+    public void matchesDecimalNearReference() {
+        Random random = new Random(1L);
+        for (int i = 0; i < SAMPLES; i++) {
+            double reference = uniform(random, 90d);
+            assertMatchesDecimal(reference + random.nextGaussian() * 0.01, reference);
+            reference = uniform(random, 180d);
+            assertMatchesDecimal(reference + random.nextGaussian() * 0.01, reference);
+        }
+    }
+
+    @Test
+    public void matchesDecimalAnywhere() {
+        Random random = new Random(2L);
+        for (int i = 0; i < SAMPLES; i++) {
+            assertMatchesDecimal(uniform(random, 90d), uniform(random, 90d));
+            assertMatchesDecimal(uniform(random, 180d), uniform(random, 180d));
+        }
+    }
+
+    @Test
+    public void matchesDecimalNearAntimeridian() {
+        Random random = new Random(3L);
+        for (int i = 0; i < SAMPLES; i++) {
+            double reference = 180d - random.nextDouble() * 0.01;
+            double longitude = 180d - random.nextDouble() * 0.01;
+            assertMatchesDecimal(longitude, reference);
+            assertMatchesDecimal(-longitude, reference);
+            assertMatchesDecimal(longitude, -reference);
+            assertMatchesDecimal(-longitude, -reference);
+        }
+        assertMatchesDecimal(180d, -180d);
+        assertMatchesDecimal(-180d, 180d);
+        assertMatchesDecimal(179.999999999d, -179.999999999d);
+    }
+
+    @Test
+    public void matchesDecimalWithShortReferences() {
+        // references as a location provider reports them, with few decimals
+        Random random = new Random(4L);
+        for (int i = 0; i < SAMPLES; i++) {
+            double reference = Math.rint(uniform(random, 180d) * 1e6) / 1e6;
+            assertMatchesDecimal(reference + random.nextGaussian() * 0.001, reference);
+        }
+    }
+
+    @Test
+    public void formattedReferenceRoundTrips() {
+        Random random = new Random(5L);
+        for (int i = 0; i < SAMPLES; i++) {
+            double reference = uniform(random, 180d);
+            assertEquals(reference, RelativeCoordinates.parseReference(
+                    RelativeCoordinates.formatReference(reference)), 0d);
+        }
+    }
+
+    /**
+     * Compare with the decimal computation that was used before, for a reference that is stored
+     * either in the previous BigDecimal format or in the current format.
+     */
+    private static void assertMatchesDecimal(double absolute, double reference) {
+        String[] storedReferences = {
+                BigDecimal.valueOf(reference).toString(),
+                RelativeCoordinates.formatReference(reference),
+        };
+        for (String storedReference : storedReferences) {
+            double expected = BigDecimal.valueOf(absolute)
+                    .subtract(new BigDecimal(storedReference))
+                    .doubleValue();
+            double actual = RelativeCoordinates.relative(
+                    absolute, RelativeCoordinates.parseReference(storedReference));
+            assertEquals(absolute + " relative to " + storedReference, expected, actual, TOLERANCE);
+        }
+    }
+
+    private static double uniform(Random random, double bound) {
+        return (random.nextDouble() * 2d - 1d) * bound;
+    }
+}